@@ -0,0 +1,37 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar: the usual JMH command line, with the GC
+ * profiler always on so every result comes with its allocation rate
+ * (gc.alloc.rate and gc.alloc.rate.norm).
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class BenchmarkRunner {
+	/**
+	 * Utility class.
+	 */
+	private BenchmarkRunner() {
+	}
+
+	/**
+	 * Run the benchmarks.
+	 * 
+	 * @param arguments
+	 *            JMH options (e.g. a benchmark regex).
+	 * @throws Exception
+	 *             Invalid options or a failed run.
+	 */
+	public static final void main(final String... arguments) throws Exception {
+		final Options options = new OptionsBuilder().parent(new CommandLineOptions(arguments))
+				.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
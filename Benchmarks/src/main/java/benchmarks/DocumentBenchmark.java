@@ -0,0 +1,80 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full Document build (generate, solve, render and write the .tex file, as
+ * Main does). Large books take seconds, so every operation is timed as a
+ * single shot.
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class DocumentBenchmark {
+	/**
+	 * Number of puzzles in the book.
+	 */
+	@Param({ "12", "1000", "100000" })
+	public int amount;
+
+	/**
+	 * Directory receiving the .tex files.
+	 */
+	private Path directory;
+
+	/**
+	 * Create the output directory.
+	 * 
+	 * @throws IOException
+	 *             ioe.
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("sudoku-bench");
+	}
+
+	/**
+	 * Remove the output.
+	 * 
+	 * @throws IOException
+	 *             ioe.
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(directory.resolve("book.tex"));
+		Files.deleteIfExists(directory);
+	}
+
+	/**
+	 * Build the book.
+	 * 
+	 * @throws Throwable
+	 *             Anything the document throws.
+	 */
+	@Benchmark
+	public void build() throws Throwable {
+		Sut.createBook(directory.resolve("book").toString(), amount);
+	}
+}
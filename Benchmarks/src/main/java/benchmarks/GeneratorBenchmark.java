@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SudokuGenerator.createPuzzle per difficulty.
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+	/**
+	 * Difficulty to generate.
+	 */
+	@Param({ "EASY", "MEDIUM", "HARD" })
+	public String difficulty;
+
+	/**
+	 * Generator under test.
+	 */
+	private Object generator;
+
+	/**
+	 * Difficulty constant.
+	 */
+	private Object level;
+
+	/**
+	 * Create the generator.
+	 * 
+	 * @throws Throwable
+	 *             Anything the generator throws.
+	 */
+	@Setup
+	public void setUp() throws Throwable {
+		generator = Sut.newGenerator();
+		level = Sut.difficulty(difficulty);
+	}
+
+	/**
+	 * Create one puzzle.
+	 * 
+	 * @return Puzzle.
+	 * @throws Throwable
+	 *             Anything the generator throws.
+	 */
+	@Benchmark
+	public int[][] createPuzzle() throws Throwable {
+		return Sut.createPuzzle(generator, level);
+	}
+}
@@ -0,0 +1,136 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LaTeXConverter.sudokuGrid and LaTeXConverter.sudokuSolution (String[][]
+ * tokens, new String per call) against GridTemplate rendering boards into a
+ * reused StringBuilder (as Document renders into its writer).
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LaTeXBenchmark {
+	/**
+	 * Puzzle and its solution.
+	 */
+	private static final String PUZZLE = "..3.2.6..9..3.5..1..18.64....81.29..7.......8..67.82....26.95..8..2.3..9..5.1.3..",
+			SOLUTION = "483921657967345821251876493548132976729564138136798245372689514814253769695417382";
+
+	/**
+	 * Cell tokens of the puzzle and of the solution delta (as Document passes
+	 * them).
+	 */
+	private String[][] unsolved, solved;
+
+	/**
+	 * Puzzle and solution delta as boards.
+	 */
+	private Object puzzleBoard, deltaBoard;
+
+	/**
+	 * Kanji token of every value.
+	 */
+	private final String[] tokens = new String[10];
+
+	/**
+	 * Reused output buffer of the template benchmarks.
+	 */
+	private final StringBuilder buffer = new StringBuilder(4096);
+
+	/**
+	 * Convert the grids to Kanji tokens and boards.
+	 * 
+	 * @throws Throwable
+	 *             Anything Board.of throws.
+	 */
+	@Setup
+	public void setUp() throws Throwable {
+		final int[][] puzzle = Sut.parse(PUZZLE);
+		final int[][] solution = Sut.parse(SOLUTION);
+		final int[][] delta = new int[9][9];
+		unsolved = new String[9][9];
+		solved = new String[9][9];
+		for (int row = 0; row < 9; ++row) {
+			for (int col = 0; col < 9; ++col) {
+				delta[row][col] = puzzle[row][col] == 0 ? solution[row][col] : 0;
+				unsolved[row][col] = Sut.kanji(puzzle[row][col]);
+				solved[row][col] = Sut.kanji(delta[row][col]);
+			}
+		}
+		puzzleBoard = Sut.board(puzzle);
+		deltaBoard = Sut.board(delta);
+		for (int value = 0; value < tokens.length; ++value) {
+			tokens[value] = Sut.kanji(value);
+		}
+	}
+
+	/**
+	 * Render a puzzle.
+	 * 
+	 * @return LaTeX code.
+	 * @throws Throwable
+	 *             Anything the converter throws.
+	 */
+	@Benchmark
+	public String sudokuGrid() throws Throwable {
+		return Sut.sudokuGrid(unsolved, 42);
+	}
+
+	/**
+	 * Render a solution.
+	 * 
+	 * @return LaTeX code.
+	 * @throws Throwable
+	 *             Anything the converter throws.
+	 */
+	@Benchmark
+	public String sudokuSolution() throws Throwable {
+		return Sut.sudokuSolution(unsolved, solved, "orange", 42);
+	}
+
+	/**
+	 * Render a puzzle with the precompiled template.
+	 * 
+	 * @return Length of the LaTeX code.
+	 * @throws Throwable
+	 *             Anything the template throws.
+	 */
+	@Benchmark
+	public int puzzleTemplate() throws Throwable {
+		buffer.setLength(0);
+		Sut.renderPuzzle(buffer, puzzleBoard, tokens, 42);
+		return buffer.length();
+	}
+
+	/**
+	 * Render a solution with the precompiled template.
+	 * 
+	 * @return Length of the LaTeX code.
+	 * @throws Throwable
+	 *             Anything the template throws.
+	 */
+	@Benchmark
+	public int solutionTemplate() throws Throwable {
+		buffer.setLength(0);
+		Sut.renderSolution(buffer, puzzleBoard, deltaBoard, tokens, 42);
+		return buffer.length();
+	}
+}
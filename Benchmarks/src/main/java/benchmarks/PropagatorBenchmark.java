@@ -0,0 +1,106 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BatchPropagator.propagate on a batch of generated boards, SIMD against
+ * scalar (one operation = one board). The fork adds the vector module; without
+ * it "vector" falls back to the scalar implementation.
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@OperationsPerInvocation(PropagatorBenchmark.BOARDS)
+public class PropagatorBenchmark {
+	/**
+	 * Boards per batch.
+	 */
+	static final int BOARDS = 4096;
+
+	/**
+	 * Difficulty of the boards (EASY ones are solved by singles, HARD ones
+	 * mostly stay open).
+	 */
+	@Param({ "EASY", "HARD" })
+	public String difficulty;
+
+	/**
+	 * Implementation.
+	 */
+	@Param({ "vector", "scalar" })
+	public String backend;
+
+	/**
+	 * Propagator under test.
+	 */
+	private Object propagator;
+
+	/**
+	 * Generated boards, packed.
+	 */
+	private byte[] boards;
+
+	/**
+	 * Working copy (propagation works in place).
+	 */
+	private byte[] work;
+
+	/**
+	 * Status of every board.
+	 */
+	private Object[] status;
+
+	/**
+	 * Generate the boards and create the propagator.
+	 * 
+	 * @throws Throwable
+	 *             Anything the generator or the propagator throws.
+	 */
+	@Setup
+	public void setUp() throws Throwable {
+		final Object generator = Sut.newGenerator();
+		final Object level = Sut.difficulty(difficulty);
+		boards = new byte[BOARDS * 81];
+		for (int board = 0; board < BOARDS; ++board) {
+			final int[][] puzzle = Sut.createPuzzle(generator, level);
+			for (int cell = 0; cell < 81; ++cell) {
+				boards[board * 81 + cell] = (byte) puzzle[cell / 9][cell % 9];
+			}
+		}
+		work = new byte[boards.length];
+		status = Sut.newStatus(BOARDS);
+		propagator = Sut.newPropagator(backend);
+	}
+
+	/**
+	 * Propagate the whole batch.
+	 * 
+	 * @return Number of solved boards.
+	 * @throws Throwable
+	 *             Anything the propagator throws.
+	 */
+	@Benchmark
+	public int propagate() throws Throwable {
+		System.arraycopy(boards, 0, work, 0, boards.length);
+		return Sut.propagate(propagator, work, BOARDS, status);
+	}
+}
@@ -0,0 +1,129 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Solver.solve on fixed corpora (one operation = the whole corpus).
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+	/**
+	 * Easy puzzles (singles only).
+	 */
+	private static final String[] EASY = {
+			"..3.2.6..9..3.5..1..18.64....81.29..7.......8..67.82....26.95..8..2.3..9..5.1.3..",
+			"2...8.3...6..7..84.3.5..2.9...1.54.8.........4.27.6...3.1..7.4.72..4..6...4.1...3",
+			"......9.7...42.18....7.5.261..9.4....5.....4....5.7..992.1.8....34.59...5.7......" };
+
+	/**
+	 * Hard puzzles (need guessing).
+	 */
+	private static final String[] HARD = {
+			"8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+			"4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+			"52...6.........7.13...........4..8..6......5...........418.........3..2...87....." };
+
+	/**
+	 * Known worst cases for naive backtracking in row-major order (not for the
+	 * original SudokuSolver, which fills column by column, see WORST_COLUMN).
+	 */
+	private static final String[] WORST = {
+			"..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9",
+			".......12........3..23..4....1....5....4.6..7.....8...9...2......5.3.1.....6.....",
+			"1...34.8....8..5....4.6..21.18......3..1.2..6......81.52..7.9....6..9....9.64...2" };
+
+	/**
+	 * Worst cases for naive backtracking in column-major order, the order of
+	 * the original SudokuSolver: hard puzzles transposed or not and with the
+	 * digits renamed so that the first column of the solution reads 9 to 1
+	 * (the last value tried in every cell), the slowest of them for that
+	 * solver (2 to 4 s each).
+	 */
+	private static final String[] WORST_COLUMN = {
+			"9......18.6.2.............9..7...52.....38.........6..3...9.......5..7..1........",
+			"..............7.13..6.8.......3.4.....2...6...9.......3......47..8.6........2...9",
+			"......5.......9.....1.4..2....5.......2....14.3.7.........1.....8....7...5....3.9" };
+
+	/**
+	 * Corpus to solve.
+	 */
+	@Param({ "EASY", "HARD", "WORST", "WORST_COLUMN" })
+	public String corpus;
+
+	/**
+	 * Solver backend.
+	 */
+	@Param({ "bitmask", "dlx" })
+	public String backend;
+
+	/**
+	 * Solver under test.
+	 */
+	private Object solver;
+
+	/**
+	 * Parsed corpus.
+	 */
+	private int[][][] puzzles;
+
+	/**
+	 * Scratch grid (the solvers work in place).
+	 */
+	private final int[][] grid = new int[9][9];
+
+	/**
+	 * Parse the corpus and create the solver.
+	 * 
+	 * @throws Throwable
+	 *             Anything the solver throws.
+	 */
+	@Setup
+	public void setUp() throws Throwable {
+		final String[] lines = "EASY".equals(corpus) ? EASY
+				: "HARD".equals(corpus) ? HARD : "WORST".equals(corpus) ? WORST : WORST_COLUMN;
+		puzzles = new int[lines.length][][];
+		for (int i = 0; i < lines.length; ++i) {
+			puzzles[i] = Sut.parse(lines[i]);
+		}
+		solver = Sut.newSolver(backend);
+	}
+
+	/**
+	 * Solve every puzzle of the corpus.
+	 * 
+	 * @return Sum of the first rows (keeps the work alive).
+	 * @throws Throwable
+	 *             Anything the solver throws.
+	 */
+	@Benchmark
+	public int solve() throws Throwable {
+		int checksum = 0;
+		for (final int[][] puzzle : puzzles) {
+			for (int row = 0; row < 9; ++row) {
+				System.arraycopy(puzzle[row], 0, grid[row], 0, 9);
+			}
+			checksum += Sut.solve(solver, grid)[0][0];
+		}
+		return checksum;
+	}
+}
@@ -0,0 +1,397 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.Map;
+
+/**
+ * Access to the system under test. The Sudoku classes live in the default
+ * package, which cannot be imported from a named package (and JMH refuses
+ * benchmarks in the default package), so they are bound once through method
+ * handles. The handles are static final constants, so the JIT inlines them
+ * like direct calls.
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+final class Sut {
+	/**
+	 * Lookup for the public API.
+	 */
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+	/**
+	 * new SudokuSolver(), new DancingLinksSolver(), new SudokuGenerator().
+	 */
+	private static final MethodHandle NEW_SOLVER, NEW_DLX_SOLVER, NEW_GENERATOR;
+
+	/**
+	 * Solver.solve(int[][]).
+	 */
+	private static final MethodHandle SOLVE;
+
+	/**
+	 * SudokuGenerator.createPuzzle(Difficulty).
+	 */
+	private static final MethodHandle CREATE_PUZZLE;
+
+	/**
+	 * LaTeXConverter.sudokuGrid(String[][], int) and
+	 * LaTeXConverter.sudokuSolution(String[][], String[][], String, int).
+	 */
+	private static final MethodHandle SUDOKU_GRID, SUDOKU_SOLUTION;
+
+	/**
+	 * GridTemplate.render(Appendable, Board, Board, String[], int) and
+	 * Board.of(int[][]).
+	 */
+	private static final MethodHandle RENDER, BOARD_OF;
+
+	/**
+	 * GridTemplate.PUZZLE and GridTemplate.solution("orange").
+	 */
+	private static final Object PUZZLE_TEMPLATE, SOLUTION_TEMPLATE;
+
+	/**
+	 * Main.createBook(String, int).
+	 */
+	private static final MethodHandle CREATE_BOOK;
+
+	/**
+	 * BatchPropagator.create(Topology) and BatchPropagator.scalar(Topology)
+	 * applied to Topology.standard(3).
+	 */
+	private static final MethodHandle NEW_PROPAGATOR, NEW_SCALAR_PROPAGATOR;
+
+	/**
+	 * BatchPropagator.propagate(byte[], int, int, Status[]).
+	 */
+	private static final MethodHandle PROPAGATE;
+
+	/**
+	 * BatchPropagator.Status.
+	 */
+	private static final Class<?> STATUS;
+
+	/**
+	 * LaTeXConverter.J_NUMBER_COMMANDS.
+	 */
+	private static final Map<?, ?> J_NUMBER_COMMANDS;
+
+	/**
+	 * SudokuGenerator.Difficulty.
+	 */
+	private static final Class<?> DIFFICULTY;
+	static {
+		try {
+			final Class<?> solver = Class.forName("Solver");
+			final Class<?> generator = Class.forName("SudokuGenerator");
+			final Class<?> converter = Class.forName("LaTeXConverter");
+			DIFFICULTY = Class.forName("SudokuGenerator$Difficulty");
+			final MethodType newObject = MethodType.methodType(Object.class);
+			NEW_SOLVER = LOOKUP.findConstructor(Class.forName("SudokuSolver"), MethodType.methodType(void.class))
+					.asType(newObject);
+			NEW_DLX_SOLVER = LOOKUP
+					.findConstructor(Class.forName("DancingLinksSolver"), MethodType.methodType(void.class))
+					.asType(newObject);
+			NEW_GENERATOR = LOOKUP.findConstructor(generator, MethodType.methodType(void.class)).asType(newObject);
+			SOLVE = LOOKUP.findVirtual(solver, "solve", MethodType.methodType(int[][].class, int[][].class))
+					.asType(MethodType.methodType(int[][].class, Object.class, int[][].class));
+			CREATE_PUZZLE = LOOKUP
+					.findVirtual(generator, "createPuzzle", MethodType.methodType(int[][].class, DIFFICULTY))
+					.asType(MethodType.methodType(int[][].class, Object.class, Object.class));
+			SUDOKU_GRID = LOOKUP.findStatic(converter, "sudokuGrid",
+					MethodType.methodType(String.class, String[][].class, int.class));
+			SUDOKU_SOLUTION = LOOKUP.findStatic(converter, "sudokuSolution", MethodType.methodType(String.class,
+					String[][].class, String[][].class, String.class, int.class));
+			final Class<?> template = Class.forName("GridTemplate");
+			final Class<?> board = Class.forName("Board");
+			RENDER = LOOKUP
+					.findVirtual(template, "render",
+							MethodType.methodType(void.class, Appendable.class, board, board, String[].class,
+									int.class))
+					.asType(MethodType.methodType(void.class, Object.class, Appendable.class, Object.class,
+							Object.class, String[].class, int.class));
+			BOARD_OF = LOOKUP.findStatic(board, "of", MethodType.methodType(board, int[][].class))
+					.asType(MethodType.methodType(Object.class, int[][].class));
+			PUZZLE_TEMPLATE = template.getField("PUZZLE").get(null);
+			SOLUTION_TEMPLATE = template.getMethod("solution", String.class).invoke(null, "orange");
+			CREATE_BOOK = LOOKUP.findStatic(Class.forName("Main"), "createBook",
+					MethodType.methodType(void.class, String.class, int.class));
+			J_NUMBER_COMMANDS = (Map<?, ?>) converter.getField("J_NUMBER_COMMANDS").get(null);
+			final Class<?> topology = Class.forName("Topology");
+			final Class<?> propagator = Class.forName("BatchPropagator");
+			STATUS = Class.forName("BatchPropagator$Status");
+			final MethodHandle standard = MethodHandles.insertArguments(
+					LOOKUP.findStatic(topology, "standard", MethodType.methodType(topology, int.class)), 0, 3);
+			NEW_PROPAGATOR = MethodHandles
+					.filterReturnValue(standard,
+							LOOKUP.findStatic(propagator, "create", MethodType.methodType(propagator, topology)))
+					.asType(newObject);
+			NEW_SCALAR_PROPAGATOR = MethodHandles
+					.filterReturnValue(standard,
+							LOOKUP.findStatic(propagator, "scalar", MethodType.methodType(propagator, topology)))
+					.asType(newObject);
+			PROPAGATE = LOOKUP
+					.findVirtual(propagator, "propagate",
+							MethodType.methodType(int.class, byte[].class, int.class, int.class,
+									STATUS.arrayType()))
+					.asType(MethodType.methodType(int.class, Object.class, byte[].class, int.class, int.class,
+							Object[].class));
+		} catch (final ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Utility class.
+	 */
+	private Sut() {
+	}
+
+	/**
+	 * Create a solver backend.
+	 * 
+	 * @param backend
+	 *            "bitmask" (SudokuSolver) or "dlx" (DancingLinksSolver).
+	 * @return Solver.
+	 * @throws Throwable
+	 *             Anything the constructor throws.
+	 */
+	static final Object newSolver(final String backend) throws Throwable {
+		return "dlx".equals(backend) ? (Object) NEW_DLX_SOLVER.invokeExact() : (Object) NEW_SOLVER.invokeExact();
+	}
+
+	/**
+	 * Solver.solve.
+	 * 
+	 * @param solver
+	 *            Solver.
+	 * @param grid
+	 *            Puzzle (solved in place).
+	 * @return Solution.
+	 * @throws Throwable
+	 *             Anything the solver throws.
+	 */
+	static final int[][] solve(final Object solver, final int[][] grid) throws Throwable {
+		return (int[][]) SOLVE.invokeExact(solver, grid);
+	}
+
+	/**
+	 * Create a batch propagator for 9x9 boards.
+	 * 
+	 * @param backend
+	 *            "vector" (BatchPropagator.create) or "scalar".
+	 * @return BatchPropagator.
+	 * @throws Throwable
+	 *             Anything the factory throws.
+	 */
+	static final Object newPropagator(final String backend) throws Throwable {
+		return "scalar".equals(backend) ? (Object) NEW_SCALAR_PROPAGATOR.invokeExact()
+				: (Object) NEW_PROPAGATOR.invokeExact();
+	}
+
+	/**
+	 * Status array for a batch.
+	 * 
+	 * @param count
+	 *            Number of boards.
+	 * @return BatchPropagator.Status[count].
+	 */
+	static final Object[] newStatus(final int count) {
+		return (Object[]) Array.newInstance(STATUS, count);
+	}
+
+	/**
+	 * BatchPropagator.propagate.
+	 * 
+	 * @param propagator
+	 *            Propagator.
+	 * @param boards
+	 *            Packed boards (modified in place).
+	 * @param count
+	 *            Number of boards.
+	 * @param status
+	 *            Array from newStatus.
+	 * @return Number of solved boards.
+	 * @throws Throwable
+	 *             Anything the propagator throws.
+	 */
+	static final int propagate(final Object propagator, final byte[] boards, final int count, final Object[] status)
+			throws Throwable {
+		return (int) PROPAGATE.invokeExact(propagator, boards, 0, count, status);
+	}
+
+	/**
+	 * Create a generator.
+	 * 
+	 * @return SudokuGenerator.
+	 * @throws Throwable
+	 *             Anything the constructor throws.
+	 */
+	static final Object newGenerator() throws Throwable {
+		return (Object) NEW_GENERATOR.invokeExact();
+	}
+
+	/**
+	 * Look up a difficulty.
+	 * 
+	 * @param name
+	 *            EASY, MEDIUM or HARD.
+	 * @return SudokuGenerator.Difficulty constant.
+	 */
+	static final Object difficulty(final String name) {
+		for (final Object constant : DIFFICULTY.getEnumConstants()) {
+			if (((Enum<?>) constant).name().equals(name)) {
+				return constant;
+			}
+		}
+		throw new IllegalArgumentException("Unknown difficulty: " + name);
+	}
+
+	/**
+	 * SudokuGenerator.createPuzzle.
+	 * 
+	 * @param generator
+	 *            Generator.
+	 * @param difficulty
+	 *            Difficulty constant.
+	 * @return Puzzle.
+	 * @throws Throwable
+	 *             Anything the generator throws.
+	 */
+	static final int[][] createPuzzle(final Object generator, final Object difficulty) throws Throwable {
+		return (int[][]) CREATE_PUZZLE.invokeExact(generator, difficulty);
+	}
+
+	/**
+	 * LaTeXConverter.sudokuGrid.
+	 * 
+	 * @param grid
+	 *            Cell tokens.
+	 * @param index
+	 *            Number of the puzzle.
+	 * @return LaTeX code.
+	 * @throws Throwable
+	 *             Anything the converter throws.
+	 */
+	static final String sudokuGrid(final String[][] grid, final int index) throws Throwable {
+		return (String) SUDOKU_GRID.invokeExact(grid, index);
+	}
+
+	/**
+	 * LaTeXConverter.sudokuSolution.
+	 * 
+	 * @param unsolved
+	 *            Cell tokens of the puzzle.
+	 * @param solved
+	 *            Cell tokens of the solution delta.
+	 * @param color
+	 *            Color of the solution digits.
+	 * @param index
+	 *            Number of the puzzle.
+	 * @return LaTeX code.
+	 * @throws Throwable
+	 *             Anything the converter throws.
+	 */
+	static final String sudokuSolution(final String[][] unsolved, final String[][] solved, final String color,
+			final int index) throws Throwable {
+		return (String) SUDOKU_SOLUTION.invokeExact(unsolved, solved, color, index);
+	}
+
+	/**
+	 * Board.of.
+	 * 
+	 * @param grid
+	 *            Grid.
+	 * @return Board.
+	 * @throws Throwable
+	 *             Anything Board.of throws.
+	 */
+	static final Object board(final int[][] grid) throws Throwable {
+		return (Object) BOARD_OF.invokeExact(grid);
+	}
+
+	/**
+	 * GridTemplate.PUZZLE.render.
+	 * 
+	 * @param out
+	 *            Target.
+	 * @param puzzle
+	 *            Board.
+	 * @param tokens
+	 *            Token of every value.
+	 * @param index
+	 *            Number of the puzzle.
+	 * @throws Throwable
+	 *             Anything the template throws.
+	 */
+	static final void renderPuzzle(final Appendable out, final Object puzzle, final String[] tokens, final int index)
+			throws Throwable {
+		RENDER.invokeExact(PUZZLE_TEMPLATE, out, puzzle, (Object) null, tokens, index);
+	}
+
+	/**
+	 * GridTemplate.solution("orange").render.
+	 * 
+	 * @param out
+	 *            Target.
+	 * @param puzzle
+	 *            Board.
+	 * @param delta
+	 *            Solution delta.
+	 * @param tokens
+	 *            Token of every value.
+	 * @param index
+	 *            Number of the puzzle.
+	 * @throws Throwable
+	 *             Anything the template throws.
+	 */
+	static final void renderSolution(final Appendable out, final Object puzzle, final Object delta,
+			final String[] tokens, final int index) throws Throwable {
+		RENDER.invokeExact(SOLUTION_TEMPLATE, out, puzzle, delta, tokens, index);
+	}
+
+	/**
+	 * Main.createBook.
+	 * 
+	 * @param name
+	 *            Name of the .tex file.
+	 * @param amount
+	 *            Number of puzzles.
+	 * @throws Throwable
+	 *             Anything the document throws.
+	 */
+	static final void createBook(final String name, final int amount) throws Throwable {
+		CREATE_BOOK.invokeExact(name, amount);
+	}
+
+	/**
+	 * Kanji command of a digit (the cell token of a Japanese Document).
+	 * 
+	 * @param digit
+	 *            Digit (0 = empty).
+	 * @return LaTeX token.
+	 */
+	static final String kanji(final int digit) {
+		return (String) J_NUMBER_COMMANDS.get(digit);
+	}
+
+	/**
+	 * Parse a puzzle in the usual one-line notation ('.' or '0' = empty).
+	 * 
+	 * @param line
+	 *            81 characters.
+	 * @return Grid.
+	 */
+	static final int[][] parse(final String line) {
+		final int[][] grid = new int[9][9];
+		for (int cell = 0; cell < 81; ++cell) {
+			final char c = line.charAt(cell);
+			grid[cell / 9][cell % 9] = c == '.' ? 0 : c - '0';
+		}
+		return grid;
+	}
+}
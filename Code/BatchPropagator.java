@@ -0,0 +1,99 @@
+/**
+ * Candidate computation and singles propagation for many boards at once (for
+ * regrading or validating archives). The boards are packed into one flat
+ * buffer (board i occupies the cells [i * cells, (i + 1) * cells), row by row,
+ * 0 = empty), as in BatchSolver. create() picks the SIMD implementation
+ * (jdk.incubator.vector, boards in vector lanes) if the module is available
+ * (--add-modules jdk.incubator.vector) and the scalar one otherwise; both give
+ * the same results. Implementations are not thread-safe (one per thread).
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public interface BatchPropagator {
+	/**
+	 * Fastest implementation available.
+	 *
+	 * @param topology
+	 *            Units of the boards.
+	 * @return SIMD propagator, or the scalar one without the vector module.
+	 */
+	static BatchPropagator create(final Topology topology) {
+		try {
+			return new VectorPropagator(topology);
+		} catch (final LinkageError e) {
+			return scalar(topology);
+		}
+	}
+
+	/**
+	 * Scalar implementation (one board at a time).
+	 *
+	 * @param topology
+	 *            Units of the boards.
+	 * @return Scalar propagator.
+	 */
+	static BatchPropagator scalar(final Topology topology) {
+		return new ScalarPropagator(topology);
+	}
+
+	/**
+	 * Number of boards processed side by side.
+	 *
+	 * @return Lanes (1 for the scalar implementation).
+	 */
+	int lanes();
+
+	/**
+	 * Candidates of every cell.
+	 *
+	 * @param boards
+	 *            count boards, packed.
+	 * @param offset
+	 *            Index of the first board's first cell.
+	 * @param count
+	 *            Number of boards.
+	 * @param masks
+	 *            Receives the candidates (same layout as the boards starting at
+	 *            0, bit v - 1 = value v, 0 for filled cells).
+	 */
+	void candidates(byte[] boards, int offset, int count, int[] masks);
+
+	/**
+	 * Place naked and hidden singles until nothing changes (boards are
+	 * modified in place).
+	 *
+	 * @param boards
+	 *            count boards, packed.
+	 * @param offset
+	 *            Index of the first board's first cell.
+	 * @param count
+	 *            Number of boards.
+	 * @param status
+	 *            Receives the state of every board afterwards.
+	 * @return Number of solved boards.
+	 */
+	int propagate(byte[] boards, int offset, int count, Status[] status);
+
+	/**
+	 * Enum encoding the state of a board after propagation.
+	 *
+	 * @author André Dalwigk
+	 * @version 1.0
+	 */
+	enum Status {
+		/**
+		 * Singles are not enough, empty cells are left.
+		 */
+		OPEN,
+		/**
+		 * All cells are filled without conflict.
+		 */
+		SOLVED,
+		/**
+		 * The board contradicts itself (a unit holds a value twice, a cell or
+		 * a value has no place left, or a value is out of range).
+		 */
+		BROKEN
+	}
+}
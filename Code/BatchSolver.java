@@ -0,0 +1,232 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Batch solver for many puzzles packed into one flat buffer (puzzle i occupies
+ * the cells [i * cells, (i + 1) * cells), row by row, 0 = empty). The
+ * solutions are written into a caller-supplied buffer of the same layout; a
+ * puzzle without solution is copied unchanged (so it still contains zeros).
+ * The work is split into chunks that run on a thread pool, each worker thread
+ * using its own BitmaskEngine.
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class BatchSolver implements AutoCloseable {
+	/**
+	 * Chunks per thread (smaller chunks balance the load better).
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * Number of cells per puzzle.
+	 */
+	private final int cells;
+
+	/**
+	 * Pool running the chunks.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Number of threads of the pool.
+	 */
+	private final int parallelism;
+
+	/**
+	 * Shut down the pool on close (only if it was created here).
+	 */
+	private final boolean ownsExecutor;
+
+	/**
+	 * One engine per worker thread.
+	 */
+	private final ThreadLocal<BitmaskEngine> engines;
+
+	/**
+	 * Custom Ctor for a 9x9 batch solver using all cores.
+	 */
+	public BatchSolver() {
+		this(3, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Custom Ctor for a batch solver with its own thread pool.
+	 * 
+	 * @param boxSize
+	 *            Box size n (n^4 cells per puzzle).
+	 * @param threads
+	 *            Number of threads.
+	 */
+	public BatchSolver(final int boxSize, final int threads) {
+		this(boxSize, Executors.newFixedThreadPool(threads), threads, true);
+	}
+
+	/**
+	 * Custom Ctor for a batch solver running on an existing pool (the pool is
+	 * not shut down on close).
+	 * 
+	 * @param boxSize
+	 *            Box size n (n^4 cells per puzzle).
+	 * @param executor
+	 *            Pool running the chunks.
+	 * @param parallelism
+	 *            Number of threads of the pool.
+	 */
+	public BatchSolver(final int boxSize, final ExecutorService executor, final int parallelism) {
+		this(boxSize, executor, parallelism, false);
+	}
+
+	/**
+	 * Custom Ctor.
+	 * 
+	 * @param boxSize
+	 *            Box size n.
+	 * @param executor
+	 *            Pool running the chunks.
+	 * @param parallelism
+	 *            Number of threads of the pool.
+	 * @param ownsExecutor
+	 *            Shut down the pool on close.
+	 */
+	private BatchSolver(final int boxSize, final ExecutorService executor, final int parallelism,
+			final boolean ownsExecutor) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+		cells = new BitmaskEngine(boxSize).cellCount();
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.ownsExecutor = ownsExecutor;
+		engines = ThreadLocal.withInitial(() -> new BitmaskEngine(boxSize));
+	}
+
+	/**
+	 * Solve a batch of puzzles.
+	 * 
+	 * @param puzzles
+	 *            count puzzles, packed.
+	 * @param solutions
+	 *            Buffer receiving the solutions (same layout).
+	 * @param count
+	 *            Number of puzzles.
+	 * @return Number of puzzles solved.
+	 */
+	public final int solve(final int[] puzzles, final int[] solutions, final int count) {
+		checkBounds(puzzles.length, solutions.length, count);
+		return run(count, (first, last) -> {
+			final BitmaskEngine engine = engines.get();
+			int solved = 0;
+			for (int i = first; i < last; ++i) {
+				if (engine.solve(puzzles, i * cells, solutions, i * cells)) {
+					++solved;
+				}
+			}
+			return solved;
+		});
+	}
+
+	/**
+	 * Solve a batch of puzzles stored as bytes.
+	 * 
+	 * @param puzzles
+	 *            count puzzles, packed.
+	 * @param solutions
+	 *            Buffer receiving the solutions (same layout).
+	 * @param count
+	 *            Number of puzzles.
+	 * @return Number of puzzles solved.
+	 */
+	public final int solve(final byte[] puzzles, final byte[] solutions, final int count) {
+		checkBounds(puzzles.length, solutions.length, count);
+		return run(count, (first, last) -> {
+			final BitmaskEngine engine = engines.get();
+			int solved = 0;
+			for (int i = first; i < last; ++i) {
+				if (engine.solve(puzzles, i * cells, solutions, i * cells)) {
+					++solved;
+				}
+			}
+			return solved;
+		});
+	}
+
+	/**
+	 * Check that both buffers hold count puzzles.
+	 * 
+	 * @param in
+	 *            Length of the input buffer.
+	 * @param out
+	 *            Length of the output buffer.
+	 * @param count
+	 *            Number of puzzles.
+	 */
+	private final void checkBounds(final int in, final int out, final int count) {
+		final long needed = (long) count * cells;
+		if (count < 0 || in < needed || out < needed) {
+			throw new IllegalArgumentException("Buffers too small for " + count + " puzzles.");
+		}
+	}
+
+	/**
+	 * Split the batch into chunks and run them on the pool.
+	 * 
+	 * @param count
+	 *            Number of puzzles.
+	 * @param chunk
+	 *            Work of one chunk.
+	 * @return Number of puzzles solved.
+	 */
+	private final int run(final int count, final Chunk chunk) {
+		if (count == 0) {
+			return 0;
+		}
+		final int chunks = Math.min(count, parallelism * CHUNKS_PER_THREAD);
+		final List<Future<Integer>> results = new ArrayList<>(chunks);
+		for (int c = 0; c < chunks; ++c) {
+			final int first = (int) ((long) count * c / chunks);
+			final int last = (int) ((long) count * (c + 1) / chunks);
+			results.add(executor.submit(() -> chunk.solve(first, last)));
+		}
+		int solved = 0;
+		try {
+			for (final Future<Integer> result : results) {
+				solved += result.get();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Batch interrupted.", e);
+		} catch (final ExecutionException e) {
+			throw new IllegalStateException("Batch failed.", e.getCause());
+		}
+		return solved;
+	}
+
+	@Override
+	public final void close() {
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Work on a range of puzzles.
+	 */
+	@FunctionalInterface
+	private interface Chunk {
+		/**
+		 * Solve the puzzles [first, last).
+		 * 
+		 * @param first
+		 *            First puzzle.
+		 * @param last
+		 *            End of the range (exclusive).
+		 * @return Number of puzzles solved.
+		 */
+		int solve(int first, int last);
+	}
+}
@@ -0,0 +1,766 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.random.RandomGenerator;
+
+/**
+ * Constraint propagation engine for nxn Sudoku puzzles (box size n, so 9x9,
+ * 16x16 or 25x25 boards) of any topology (classic, X-Sudoku, jigsaw). The
+ * occupancy of every unit is kept as a bitmask (bit v - 1 set = value v is
+ * used), so the candidates of a cell are a few table lookups and ORs away.
+ * The search always branches on the most constrained cell and propagates
+ * naked and hidden singles after each placement. It runs on an explicit stack
+ * of preallocated arrays, so a solve or fill neither recurses nor allocates.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class BitmaskEngine {
+	/**
+	 * Largest supported box size (25 values still fit into an int mask).
+	 */
+	public static final int MAX_BOX_SIZE = 5;
+
+	/**
+	 * Box size, side length and number of cells.
+	 */
+	private final int box, size, cellCount;
+
+	/**
+	 * Layout of the units.
+	 */
+	private final Topology topology;
+
+	/**
+	 * Bitmask containing all values.
+	 */
+	private final int all;
+
+	/**
+	 * Units of each cell (degree entries per cell, see Topology).
+	 */
+	private final int[] cellUnits;
+
+	/**
+	 * Units per cell in cellUnits.
+	 */
+	private final int degree;
+
+	/**
+	 * All units as lists of cells (size entries per unit, see Topology).
+	 */
+	private final int[] units;
+
+	/**
+	 * Current values (0 = empty).
+	 */
+	private final int[] cells;
+
+	/**
+	 * Used values per unit.
+	 */
+	private final int[] unitMask;
+
+	/**
+	 * Cells placed since loading (in order), used for backtracking.
+	 */
+	private final int[] trail;
+
+	/**
+	 * Number of entries on the trail.
+	 */
+	private int trailSize;
+
+	/**
+	 * Search stack: branch cell, untried candidates and trail position before
+	 * the branch of every level.
+	 */
+	private final int[] stackCell, stackCand, stackBranch;
+
+	/**
+	 * Random source for randomized value order (null = ascending order).
+	 */
+	private RandomGenerator random;
+
+	/**
+	 * Cancellation flag of a parallel search (null = not cancellable).
+	 */
+	private AtomicBoolean cancel;
+
+	/**
+	 * Search nodes left before the current call gives up.
+	 */
+	private long nodesLeft;
+
+	/**
+	 * Counters of the last call: nodes visited, dead ends, values placed by
+	 * propagation and values tried at branch points.
+	 */
+	private long nodes, backtracks, propagations, attempts;
+
+	/**
+	 * System.nanoTime() at the start of the current call.
+	 */
+	private long callStart;
+
+	/**
+	 * JFR event of the current call (null if statistics are off).
+	 */
+	private SearchEvent event;
+
+	/**
+	 * Custom Ctor for a 9x9 engine.
+	 */
+	public BitmaskEngine() {
+		this(3);
+	}
+
+	/**
+	 * Custom Ctor for an engine of the given box size.
+	 *
+	 * @param boxSize
+	 *            Box size n (the board has n^2 x n^2 cells).
+	 */
+	public BitmaskEngine(final int boxSize) {
+		this(Topology.standard(boxSize));
+	}
+
+	/**
+	 * Custom Ctor for an engine of a board variant.
+	 *
+	 * @param topology
+	 *            Units of the board (e.g. Topology.diagonal(3)).
+	 */
+	public BitmaskEngine(final Topology topology) {
+		this.topology = topology;
+		box = topology.boxSize();
+		size = topology.size();
+		cellCount = topology.cellCount();
+		all = (1 << size) - 1;
+		cellUnits = topology.cellUnits();
+		degree = topology.degree();
+		units = topology.units();
+		cells = new int[cellCount];
+		unitMask = new int[topology.unitCount()];
+		trail = new int[cellCount];
+		stackCell = new int[cellCount + 1];
+		stackCand = new int[cellCount + 1];
+		stackBranch = new int[cellCount + 1];
+	}
+
+	/**
+	 * Box size of this engine.
+	 *
+	 * @return Box size n.
+	 */
+	public final int boxSize() {
+		return box;
+	}
+
+	/**
+	 * Units of the board.
+	 *
+	 * @return Topology.
+	 */
+	public final Topology topology() {
+		return topology;
+	}
+
+	/**
+	 * Number of cells of the board.
+	 *
+	 * @return n^4.
+	 */
+	public final int cellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * Solve a Sudoku puzzle in place. If the puzzle has no solution, the grid is
+	 * left untouched.
+	 *
+	 * @param grid
+	 *            Sudoku puzzle (grid[row][col], 0 = empty).
+	 * @return true, if solved (false otherwise).
+	 */
+	public final boolean solve(final int[][] grid) {
+		random = null;
+		beginCall(Long.MAX_VALUE);
+		if (!load(grid) || search(1) == 0) {
+			endCall(SearchStatistics.Operation.SOLVE, 0);
+			return false;
+		}
+		store(grid);
+		endCall(SearchStatistics.Operation.SOLVE, 1);
+		return true;
+	}
+
+	/**
+	 * Solve a puzzle stored as a flat array (row by row, 0 = empty). If the
+	 * puzzle has no solution, it is copied to the output unchanged.
+	 *
+	 * @param puzzles
+	 *            Buffer containing the puzzle.
+	 * @param offset
+	 *            Index of the puzzle's first cell.
+	 * @param solutions
+	 *            Buffer receiving the solution.
+	 * @param outOffset
+	 *            Index of the solution's first cell.
+	 * @return true, if solved (false otherwise).
+	 */
+	public final boolean solve(final int[] puzzles, final int offset, final int[] solutions, final int outOffset) {
+		random = null;
+		beginCall(Long.MAX_VALUE);
+		boolean valid = clear();
+		for (int cell = 0; cell < cellCount && valid; ++cell) {
+			valid = give(cell, puzzles[offset + cell]);
+		}
+		if (!valid || search(1) == 0) {
+			System.arraycopy(puzzles, offset, solutions, outOffset, cellCount);
+			endCall(SearchStatistics.Operation.SOLVE, 0);
+			return false;
+		}
+		System.arraycopy(cells, 0, solutions, outOffset, cellCount);
+		endCall(SearchStatistics.Operation.SOLVE, 1);
+		return true;
+	}
+
+	/**
+	 * Solve a puzzle stored as a flat byte array (row by row, 0 = empty). If
+	 * the puzzle has no solution, it is copied to the output unchanged.
+	 *
+	 * @param puzzles
+	 *            Buffer containing the puzzle.
+	 * @param offset
+	 *            Index of the puzzle's first cell.
+	 * @param solutions
+	 *            Buffer receiving the solution.
+	 * @param outOffset
+	 *            Index of the solution's first cell.
+	 * @return true, if solved (false otherwise).
+	 */
+	public final boolean solve(final byte[] puzzles, final int offset, final byte[] solutions, final int outOffset) {
+		random = null;
+		beginCall(Long.MAX_VALUE);
+		boolean valid = clear();
+		for (int cell = 0; cell < cellCount && valid; ++cell) {
+			valid = give(cell, puzzles[offset + cell]);
+		}
+		if (!valid || search(1) == 0) {
+			System.arraycopy(puzzles, offset, solutions, outOffset, cellCount);
+			endCall(SearchStatistics.Operation.SOLVE, 0);
+			return false;
+		}
+		for (int cell = 0; cell < cellCount; ++cell) {
+			solutions[outOffset + cell] = (byte) cells[cell];
+		}
+		endCall(SearchStatistics.Operation.SOLVE, 1);
+		return true;
+	}
+
+	/**
+	 * Complete a grid with random values (an empty grid gives a random solution
+	 * grid).
+	 *
+	 * @param grid
+	 *            Grid to fill.
+	 * @param randomGenerator
+	 *            Random source for the value order.
+	 * @return true, if the grid could be completed.
+	 */
+	public final boolean fill(final int[][] grid, final RandomGenerator randomGenerator) {
+		random = randomGenerator;
+		beginCall(Long.MAX_VALUE);
+		try {
+			if (!load(grid) || search(1) == 0) {
+				endCall(SearchStatistics.Operation.FILL, 0);
+				return false;
+			}
+		} finally {
+			random = null;
+		}
+		store(grid);
+		endCall(SearchStatistics.Operation.FILL, 1);
+		return true;
+	}
+
+	/**
+	 * Count the solutions of a Sudoku puzzle, stopping as soon as the limit is
+	 * reached (limit 2 is enough to check for uniqueness). The grid is not
+	 * modified.
+	 *
+	 * @param grid
+	 *            Sudoku puzzle (grid[row][col], 0 = empty).
+	 * @param limit
+	 *            Maximum number of solutions to look for.
+	 * @return Number of solutions (at most limit).
+	 */
+	public final int countSolutions(final int[][] grid, final int limit) {
+		return countSolutions(grid, limit, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Count the solutions of a Sudoku puzzle with a bounded effort.
+	 *
+	 * @param grid
+	 *            Sudoku puzzle (grid[row][col], 0 = empty).
+	 * @param limit
+	 *            Maximum number of solutions to look for.
+	 * @param maxNodes
+	 *            Maximum number of search nodes to visit.
+	 * @return Number of solutions (at most limit), or -1 if the node budget ran
+	 *         out first.
+	 */
+	public final int countSolutions(final int[][] grid, final int limit, final long maxNodes) {
+		random = null;
+		beginCall(maxNodes);
+		final int found = limit <= 0 || !load(grid) ? 0 : search(limit);
+		endCall(SearchStatistics.Operation.COUNT, found);
+		return nodesLeft < 0 && found < limit ? -1 : found;
+	}
+
+	/**
+	 * Count the solutions of a puzzle that differ from it in one given cell,
+	 * i.e. the solutions that appear when this clue is removed from a puzzle
+	 * with exactly one solution. The search stops at the first one, and the
+	 * known value is never tried, so removing a clue costs one refutation
+	 * instead of a full uniqueness check. The grid is not modified.
+	 *
+	 * @param grid
+	 *            Sudoku puzzle (grid[row][col], 0 = empty).
+	 * @param row
+	 *            Row of the clue.
+	 * @param col
+	 *            Column of the clue.
+	 * @param maxNodes
+	 *            Maximum number of search nodes to visit.
+	 * @return 0 (the clue can be removed), 1 (removing it makes the puzzle
+	 *         ambiguous) or -1 (the node budget ran out first).
+	 */
+	public final int countAlternatives(final int[][] grid, final int row, final int col, final long maxNodes) {
+		final int val = grid[row][col];
+		if (val == 0) {
+			throw new IllegalArgumentException("No clue at " + row + "/" + col);
+		}
+		random = null;
+		beginCall(maxNodes);
+		final int cell = row * size + col;
+		int found = 0;
+		if (load(grid, cell)) {
+			int cand = candidates(cell) & ~(1 << (val - 1));
+			while (cand != 0 && found == 0 && nodesLeft >= 0) {
+				final int bit = cand & -cand;
+				cand ^= bit;
+				place(cell, Integer.numberOfTrailingZeros(bit) + 1);
+				++attempts;
+				found = search(1);
+				undo(0);
+			}
+		}
+		endCall(SearchStatistics.Operation.COUNT, found);
+		return nodesLeft < 0 && found == 0 ? -1 : found;
+	}
+
+	/**
+	 * Search nodes visited by the last call.
+	 *
+	 * @return Nodes.
+	 */
+	public final long nodes() {
+		return nodes;
+	}
+
+	/**
+	 * Dead ends of the last call.
+	 *
+	 * @return Backtracks.
+	 */
+	public final long backtracks() {
+		return backtracks;
+	}
+
+	/**
+	 * Values placed by propagation in the last call.
+	 *
+	 * @return Propagations.
+	 */
+	public final long propagations() {
+		return propagations;
+	}
+
+	/**
+	 * Values tried at branch points in the last call.
+	 *
+	 * @return Attempts.
+	 */
+	public final long attempts() {
+		return attempts;
+	}
+
+	/**
+	 * Reset the counters and set the node budget at the start of a call.
+	 *
+	 * @param maxNodes
+	 *            Node budget.
+	 */
+	private final void beginCall(final long maxNodes) {
+		beginCall(maxNodes, true);
+	}
+
+	/**
+	 * Reset the counters and set the node budget at the start of a call,
+	 * optionally without recording the call (no event is started then).
+	 *
+	 * @param maxNodes
+	 *            Node budget.
+	 * @param recorded
+	 *            Record the call in the statistics (if they are on)?
+	 */
+	private final void beginCall(final long maxNodes, final boolean recorded) {
+		nodesLeft = maxNodes;
+		nodes = 0;
+		backtracks = 0;
+		propagations = 0;
+		attempts = 0;
+		if (recorded && SearchStatistics.isEnabled()) {
+			callStart = System.nanoTime();
+			event = SearchStatistics.begin();
+		} else {
+			event = null;
+		}
+	}
+
+	/**
+	 * Report the counters of a call (if statistics were on when it started).
+	 *
+	 * @param operation
+	 *            Kind of call.
+	 * @param solutions
+	 *            Solutions found.
+	 */
+	private final void endCall(final SearchStatistics.Operation operation, final int solutions) {
+		if (event != null) {
+			SearchStatistics.record(operation, event, nodes, backtracks, propagations, attempts, solutions,
+					callStart);
+			event = null;
+		}
+	}
+
+	/**
+	 * Load a grid and propagate singles, writing the result back (used to split
+	 * the search tree).
+	 *
+	 * @param grid
+	 *            Sudoku puzzle.
+	 * @return false, if the puzzle has a contradiction.
+	 */
+	final boolean reduce(final int[][] grid) {
+		beginCall(Long.MAX_VALUE, false);
+		if (!load(grid) || !propagate()) {
+			return false;
+		}
+		store(grid);
+		return true;
+	}
+
+	/**
+	 * Most constrained empty cell of the loaded grid.
+	 *
+	 * @return Cell index (-1 if there is no empty cell).
+	 */
+	final int branchCell() {
+		int best = -1;
+		int bestCount = size + 1;
+		for (int cell = 0; cell < cellCount; ++cell) {
+			if (cells[cell] == 0) {
+				final int count = Integer.bitCount(candidates(cell));
+				if (count < bestCount) {
+					best = cell;
+					bestCount = count;
+					if (count == 2) {
+						break;
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Candidates of an empty cell.
+	 *
+	 * @param cell
+	 *            Cell index.
+	 * @return Bitmask of the values that may be placed.
+	 */
+	final int candidates(final int cell) {
+		final int first = cell * degree;
+		int used = unitMask[cellUnits[first]] | unitMask[cellUnits[first + 1]] | unitMask[cellUnits[first + 2]];
+		for (int k = 3; k < degree; ++k) {
+			used |= unitMask[cellUnits[first + k]];
+		}
+		return all & ~used;
+	}
+
+	/**
+	 * Install the cancellation flag of a parallel search.
+	 *
+	 * @param flag
+	 *            Flag that aborts the search when set (null = never).
+	 */
+	final void setCancel(final AtomicBoolean flag) {
+		cancel = flag;
+	}
+
+	/**
+	 * Load a grid into the engine.
+	 *
+	 * @param grid
+	 *            Sudoku puzzle.
+	 * @return false, if the givens already contradict each other.
+	 */
+	private final boolean load(final int[][] grid) {
+		return load(grid, -1);
+	}
+
+	/**
+	 * Load a grid into the engine, leaving one cell empty.
+	 *
+	 * @param grid
+	 *            Sudoku puzzle.
+	 * @param skip
+	 *            Cell to leave empty (-1 = none).
+	 * @return false, if the givens already contradict each other.
+	 */
+	private final boolean load(final int[][] grid, final int skip) {
+		clear();
+		for (int row = 0, cell = 0; row < size; ++row) {
+			final int[] values = grid[row];
+			for (int col = 0; col < size; ++col, ++cell) {
+				if (cell != skip && !give(cell, values[col])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Empty the engine.
+	 *
+	 * @return Always true (for chaining with give).
+	 */
+	private final boolean clear() {
+		Arrays.fill(unitMask, 0);
+		Arrays.fill(cells, 0);
+		trailSize = 0;
+		return true;
+	}
+
+	/**
+	 * Enter a given (givens are not part of the trail).
+	 *
+	 * @param cell
+	 *            Cell index.
+	 * @param val
+	 *            Value of the given (0 = empty).
+	 * @return false, if the value contradicts the givens entered before.
+	 */
+	private final boolean give(final int cell, final int val) {
+		if (val != 0) {
+			if (val < 0 || val > size || (candidates(cell) & (1 << (val - 1))) == 0) {
+				return false;
+			}
+			place(cell, val);
+			trailSize = 0;
+		}
+		return true;
+	}
+
+	/**
+	 * Copy the engine state into a grid.
+	 *
+	 * @param grid
+	 *            Target grid.
+	 */
+	private final void store(final int[][] grid) {
+		for (int row = 0; row < size; ++row) {
+			System.arraycopy(cells, row * size, grid[row], 0, size);
+		}
+	}
+
+	/**
+	 * Place a value and record it on the trail.
+	 *
+	 * @param cell
+	 *            Cell index.
+	 * @param val
+	 *            Value to place.
+	 */
+	private final void place(final int cell, final int val) {
+		final int bit = 1 << (val - 1);
+		cells[cell] = val;
+		final int first = cell * degree;
+		unitMask[cellUnits[first]] |= bit;
+		unitMask[cellUnits[first + 1]] |= bit;
+		unitMask[cellUnits[first + 2]] |= bit;
+		for (int k = 3; k < degree; ++k) {
+			unitMask[cellUnits[first + k]] |= bit;
+		}
+		trail[trailSize++] = cell;
+	}
+
+	/**
+	 * Take back all placements made after the given trail position.
+	 *
+	 * @param mark
+	 *            Trail position to return to.
+	 */
+	private final void undo(final int mark) {
+		while (trailSize > mark) {
+			final int cell = trail[--trailSize];
+			final int bit = ~(1 << (cells[cell] - 1));
+			final int first = cell * degree;
+			unitMask[cellUnits[first]] &= bit;
+			unitMask[cellUnits[first + 1]] &= bit;
+			unitMask[cellUnits[first + 2]] &= bit;
+			for (int k = 3; k < degree; ++k) {
+				unitMask[cellUnits[first + k]] &= bit;
+			}
+			cells[cell] = 0;
+		}
+	}
+
+	/**
+	 * Place naked and hidden singles until nothing changes.
+	 *
+	 * @return false, if a contradiction was found.
+	 */
+	private final boolean propagate() {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			// Naked singles.
+			for (int cell = 0; cell < cellCount; ++cell) {
+				if (cells[cell] == 0) {
+					final int cand = candidates(cell);
+					if (cand == 0) {
+						return false;
+					}
+					if ((cand & (cand - 1)) == 0) {
+						place(cell, Integer.numberOfTrailingZeros(cand) + 1);
+						++propagations;
+						changed = true;
+					}
+				}
+			}
+			// Hidden singles.
+			for (int first = 0; first < units.length; first += size) {
+				int once = 0, twice = 0, used = 0;
+				for (int i = first; i < first + size; ++i) {
+					final int cell = units[i];
+					if (cells[cell] != 0) {
+						used |= 1 << (cells[cell] - 1);
+					} else {
+						final int cand = candidates(cell);
+						twice |= once & cand;
+						once |= cand;
+					}
+				}
+				if ((once | used) != all) {
+					// Some value has no place left in this unit.
+					return false;
+				}
+				int single = once & ~twice;
+				while (single != 0) {
+					final int bit = single & -single;
+					single ^= bit;
+					for (int i = first; i < first + size; ++i) {
+						final int cell = units[i];
+						if (cells[cell] == 0 && (candidates(cell) & bit) != 0) {
+							place(cell, Integer.numberOfTrailingZeros(bit) + 1);
+							++propagations;
+							changed = true;
+							break;
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Next value to try from a candidate mask (lowest one, or a random one if a
+	 * random source is installed).
+	 *
+	 * @param cand
+	 *            Remaining candidates (not 0).
+	 * @return Bit of the chosen value.
+	 */
+	private final int nextBit(int cand) {
+		if (random != null) {
+			for (int skip = random.nextInt(Integer.bitCount(cand)); skip > 0; --skip) {
+				cand &= cand - 1;
+			}
+		}
+		return cand & -cand;
+	}
+
+	/**
+	 * Search (propagate, then branch on the most constrained cell) using the
+	 * explicit stack. As soon as the limit is reached, the last solution is left
+	 * in the engine; otherwise the engine is restored to the loaded grid.
+	 *
+	 * @param limit
+	 *            Stop after this many solutions.
+	 * @return Number of solutions found (at most limit).
+	 */
+	private final int search(final int limit) {
+		final int root = trailSize;
+		int depth = 0;
+		int found = 0;
+		while (true) {
+			if (--nodesLeft < 0 || (cancel != null && cancel.get())) {
+				undo(root);
+				return found;
+			}
+			++nodes;
+			// Enter a node.
+			boolean open = false;
+			if (propagate()) {
+				final int best = branchCell();
+				if (best < 0) {
+					if (++found >= limit) {
+						return found;
+					}
+				} else {
+					stackCell[depth] = best;
+					stackCand[depth] = candidates(best);
+					stackBranch[depth] = trailSize;
+					open = true;
+				}
+			} else {
+				++backtracks;
+			}
+			if (!open) {
+				--depth;
+			}
+
+			// Backtrack to the deepest level with untried values.
+			while (depth >= 0 && stackCand[depth] == 0) {
+				--depth;
+			}
+			if (depth < 0) {
+				undo(root);
+				return found;
+			}
+			undo(stackBranch[depth]);
+			final int bit = nextBit(stackCand[depth]);
+			stackCand[depth] ^= bit;
+			place(stackCell[depth], Integer.numberOfTrailingZeros(bit) + 1);
+			++attempts;
+			++depth;
+		}
+	}
+}
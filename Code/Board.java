@@ -0,0 +1,257 @@
+import java.util.Arrays;
+
+/**
+ * Immutable Sudoku board of nxn boxes, stored as one byte per cell in
+ * row-major order (0 = empty). A 9x9 board takes 81 bytes instead of the 81
+ * boxed Integers plus 9 row arrays of an Integer[][]. Equality and hashing
+ * compare the cells, the hash is computed once.
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class Board {
+	/**
+	 * Box size n (the board has n^2 rows and columns).
+	 */
+	private final int box;
+
+	/**
+	 * Side length n^2.
+	 */
+	private final int size;
+
+	/**
+	 * Cells in row-major order (never modified after construction).
+	 */
+	private final byte[] cells;
+
+	/**
+	 * Cached hash code (0 = not computed yet).
+	 */
+	private int hash;
+
+	/**
+	 * Custom Ctor for a board. The array is taken over, not copied.
+	 * 
+	 * @param boxSize
+	 *            Box size n.
+	 * @param cells
+	 *            n^4 cells in row-major order.
+	 */
+	Board(final int boxSize, final byte[] cells) {
+		if (boxSize < 2 || boxSize > BitmaskEngine.MAX_BOX_SIZE) {
+			throw new IllegalArgumentException("Unsupported box size: " + boxSize);
+		}
+		box = boxSize;
+		size = boxSize * boxSize;
+		if (cells.length != size * size) {
+			throw new IllegalArgumentException("Expected " + size * size + " cells, got " + cells.length);
+		}
+		this.cells = cells;
+	}
+
+	/**
+	 * Create a board from a grid.
+	 * 
+	 * @param grid
+	 *            grid[row][col], 0 = empty (4x4, 9x9, 16x16 or 25x25).
+	 * @return Board with the values of the grid.
+	 */
+	public static final Board of(final int[][] grid) {
+		final int boxSize = boxSize(grid.length);
+		final byte[] cells = new byte[grid.length * grid.length];
+		for (int row = 0; row < grid.length; ++row) {
+			for (int col = 0; col < grid.length; ++col) {
+				final int val = grid[row][col];
+				if (val < 0 || val > grid.length) {
+					throw new IllegalArgumentException("Invalid value " + val + " at " + row + "/" + col);
+				}
+				cells[row * grid.length + col] = (byte) val;
+			}
+		}
+		return new Board(boxSize, cells);
+	}
+
+	/**
+	 * Parse a board written as one line (see toString): '.' or '0' for empty
+	 * cells, values in base 36 (1-9, then a-p on 16x16 and 25x25 boards).
+	 * 
+	 * @param line
+	 *            n^4 characters.
+	 * @return Board.
+	 */
+	public static final Board parse(final CharSequence line) {
+		final int size = (int) Math.round(Math.sqrt(line.length()));
+		final int boxSize = boxSize(size);
+		final byte[] cells = new byte[line.length()];
+		for (int cell = 0; cell < cells.length; ++cell) {
+			final char c = line.charAt(cell);
+			final int val = c == '.' ? 0 : Character.digit(c, Character.MAX_RADIX);
+			if (val < 0 || val > size) {
+				throw new IllegalArgumentException("Invalid character '" + c + "' at " + cell);
+			}
+			cells[cell] = (byte) val;
+		}
+		return new Board(boxSize, cells);
+	}
+
+	/**
+	 * Box size of a board side.
+	 * 
+	 * @param size
+	 *            Side length.
+	 * @return n with n^2 = size.
+	 */
+	private static final int boxSize(final int size) {
+		final int boxSize = (int) Math.round(Math.sqrt(size));
+		if (boxSize * boxSize != size) {
+			throw new IllegalArgumentException("Not a Sudoku board of nxn boxes: " + size);
+		}
+		return boxSize;
+	}
+
+	/**
+	 * @return Box size n.
+	 */
+	public final int boxSize() {
+		return box;
+	}
+
+	/**
+	 * @return Number of rows (= number of columns).
+	 */
+	public final int size() {
+		return size;
+	}
+
+	/**
+	 * @return Number of cells.
+	 */
+	public final int cellCount() {
+		return cells.length;
+	}
+
+	/**
+	 * Value of a cell.
+	 * 
+	 * @param row
+	 *            Row.
+	 * @param col
+	 *            Column.
+	 * @return Value (0 = empty).
+	 */
+	public final int get(final int row, final int col) {
+		return cells[row * size + col];
+	}
+
+	/**
+	 * Value of a cell.
+	 * 
+	 * @param cell
+	 *            Cell index (row * size + col).
+	 * @return Value (0 = empty).
+	 */
+	public final int get(final int cell) {
+		return cells[cell];
+	}
+
+	/**
+	 * @return Number of filled cells.
+	 */
+	public final int clues() {
+		int clues = 0;
+		for (final byte val : cells) {
+			if (val != 0) {
+				++clues;
+			}
+		}
+		return clues;
+	}
+
+	/**
+	 * The "delta" of this puzzle and its solution.
+	 * 
+	 * @param solution
+	 *            Solved board of the same size.
+	 * @return Board containing only (!) the cells that are empty here.
+	 */
+	public final Board delta(final Board solution) {
+		if (solution.cells.length != cells.length) {
+			throw new IllegalArgumentException("Board sizes differ");
+		}
+		final byte[] delta = new byte[cells.length];
+		for (int cell = 0; cell < cells.length; ++cell) {
+			if (cells[cell] == 0) {
+				delta[cell] = solution.cells[cell];
+			}
+		}
+		return new Board(box, delta);
+	}
+
+	/**
+	 * @return New grid[row][col] with the values of the board.
+	 */
+	public final int[][] toGrid() {
+		final int[][] grid = new int[size][size];
+		for (int cell = 0; cell < cells.length; ++cell) {
+			grid[cell / size][cell % size] = cells[cell];
+		}
+		return grid;
+	}
+
+	/**
+	 * Copy the cells into a flat buffer (the layout of BitmaskEngine and
+	 * BatchSolver).
+	 * 
+	 * @param target
+	 *            Buffer.
+	 * @param offset
+	 *            First cell in the buffer.
+	 */
+	public final void copyTo(final byte[] target, final int offset) {
+		System.arraycopy(cells, 0, target, offset, cells.length);
+	}
+
+	/**
+	 * The cells without copying (callers must not modify them).
+	 * 
+	 * @return Cells in row-major order.
+	 */
+	final byte[] cells() {
+		return cells;
+	}
+
+	@Override
+	public final boolean equals(final Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof Board)) {
+			return false;
+		}
+		final Board board = (Board) other;
+		return hashCode() == board.hashCode() && Arrays.equals(cells, board.cells);
+	}
+
+	@Override
+	public final int hashCode() {
+		int h = hash;
+		if (h == 0) {
+			h = Arrays.hashCode(cells);
+			hash = h;
+		}
+		return h;
+	}
+
+	/**
+	 * One line per board, '.' for empty cells (readable by parse).
+	 */
+	@Override
+	public final String toString() {
+		final char[] line = new char[cells.length];
+		for (int cell = 0; cell < cells.length; ++cell) {
+			line[cell] = cells[cell] == 0 ? '.' : Character.forDigit(cells[cell], Character.MAX_RADIX);
+		}
+		return new String(line);
+	}
+}
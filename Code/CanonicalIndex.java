@@ -0,0 +1,187 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Set of canonical fingerprints (see Canonicalizer.fingerprint), stored in an
+ * open-addressing table of longs: 8 to 16 bytes per puzzle, no boxing. It can
+ * be saved to and loaded from a file to detect duplicates across runs. All
+ * methods are synchronized.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class CanonicalIndex {
+	/**
+	 * Header of the file format.
+	 */
+	private static final int MAGIC = 0x53444958;
+
+	/**
+	 * Initial capacity of the table.
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Hash table (0 = free slot).
+	 */
+	private long[] table = new long[INITIAL_CAPACITY];
+
+	/**
+	 * Number of fingerprints in the table (without the 0 fingerprint).
+	 */
+	private int count;
+
+	/**
+	 * Is the fingerprint 0 part of the set?
+	 */
+	private boolean hasZero;
+
+	/**
+	 * Add a fingerprint.
+	 *
+	 * @param fingerprint
+	 *            Canonical fingerprint.
+	 * @return true, if it was new (false: duplicate).
+	 */
+	public final synchronized boolean add(final long fingerprint) {
+		if (fingerprint == 0) {
+			final boolean added = !hasZero;
+			hasZero = true;
+			return added;
+		}
+		if (2 * (count + 1) > table.length) {
+			grow();
+		}
+		final int mask = table.length - 1;
+		for (int slot = slot(fingerprint, mask);; slot = (slot + 1) & mask) {
+			if (table[slot] == fingerprint) {
+				return false;
+			}
+			if (table[slot] == 0) {
+				table[slot] = fingerprint;
+				++count;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Is a fingerprint part of the set?
+	 *
+	 * @param fingerprint
+	 *            Canonical fingerprint.
+	 * @return true, if it is.
+	 */
+	public final synchronized boolean contains(final long fingerprint) {
+		if (fingerprint == 0) {
+			return hasZero;
+		}
+		final int mask = table.length - 1;
+		for (int slot = slot(fingerprint, mask);; slot = (slot + 1) & mask) {
+			if (table[slot] == fingerprint) {
+				return true;
+			}
+			if (table[slot] == 0) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Number of fingerprints.
+	 *
+	 * @return Size of the set.
+	 */
+	public final synchronized int size() {
+		return count + (hasZero ? 1 : 0);
+	}
+
+	/**
+	 * Write the set to a file (via a temporary file, so an existing index is
+	 * never left half-written).
+	 *
+	 * @param file
+	 *            Target file.
+	 * @throws IOException
+	 *             ioe.
+	 */
+	public final synchronized void save(final Path file) throws IOException {
+		final Path parent = file.toAbsolutePath().getParent();
+		final Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(size());
+			if (hasZero) {
+				out.writeLong(0);
+			}
+			for (final long fingerprint : table) {
+				if (fingerprint != 0) {
+					out.writeLong(fingerprint);
+				}
+			}
+		} catch (final IOException e) {
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Read a set written by save.
+	 *
+	 * @param file
+	 *            Index file.
+	 * @return Index.
+	 * @throws IOException
+	 *             ioe (also if the file is no index).
+	 */
+	public static final CanonicalIndex load(final Path file) throws IOException {
+		final CanonicalIndex index = new CanonicalIndex();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a puzzle index: " + file);
+			}
+			for (int remaining = in.readInt(); remaining > 0; --remaining) {
+				index.add(in.readLong());
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Double the table.
+	 */
+	private final void grow() {
+		final long[] old = table;
+		table = new long[old.length * 2];
+		final int mask = table.length - 1;
+		for (final long fingerprint : old) {
+			if (fingerprint != 0) {
+				int slot = slot(fingerprint, mask);
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = fingerprint;
+			}
+		}
+	}
+
+	/**
+	 * Home slot of a fingerprint (fingerprints are already well mixed).
+	 *
+	 * @param fingerprint
+	 *            Fingerprint.
+	 * @param mask
+	 *            Table length - 1.
+	 * @return Slot.
+	 */
+	private static final int slot(final long fingerprint, final int mask) {
+		return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+	}
+}
@@ -0,0 +1,426 @@
+import java.util.Arrays;
+
+/**
+ * Computes the canonical form of a Sudoku puzzle: the lexicographically
+ * smallest cell sequence (row by row, empty cells first) among all puzzles
+ * that are equivalent under transposition, band and stack permutations, row
+ * permutations within a band, column permutations within a stack and
+ * relabeling of the values. Two puzzles have the same canonical form exactly
+ * if one can be turned into the other, so the form (or its fingerprint)
+ * detects duplicates that GridFactory-style transformations hide.
+ * <p>
+ * The search is a branch and bound over the rows of the form (every band and
+ * row order), values are labelled in order of first appearance, and every
+ * branch is cut as soon as its prefix is larger than the best form found so
+ * far. Columns are only ordered when a row tells them apart: columns of a
+ * stack that are empty in every row chosen so far stay one interchangeable
+ * group, which avoids enumerating all column orders for sparse rows. A puzzle
+ * takes a few dozen microseconds; a full solution grid, where every column
+ * order ties in the first row, takes about a millisecond. Not thread-safe
+ * (one canonicalizer per thread).
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class Canonicalizer {
+	/**
+	 * Label of an unknown cell of the best form (larger than every value).
+	 */
+	private static final int UNKNOWN = Integer.MAX_VALUE;
+
+	/**
+	 * The current path equals the best form (no position where it is smaller).
+	 */
+	private static final int EQUAL = Integer.MAX_VALUE;
+
+	/**
+	 * Box size n.
+	 */
+	private final int box;
+
+	/**
+	 * Side length n^2.
+	 */
+	private final int size;
+
+	/**
+	 * Cells of the puzzle (as given, or transposed).
+	 */
+	private final int[] source;
+
+	/**
+	 * Best form found so far, and the form on the current path.
+	 */
+	private final int[] best, current;
+
+	/**
+	 * Label of every value on the current path (0 = not labelled yet).
+	 */
+	private final int[] labels;
+
+	/**
+	 * Column order before row d of the form is placed: fixed[d][pos] is the
+	 * source column at pos (-1 = part of a group), members[d][pos] the source
+	 * columns of the group starting at pos (0 = no group starts there).
+	 */
+	private final int[][] fixed, members;
+
+	/**
+	 * Source row of every row of the form.
+	 */
+	private final int[] rowOf;
+
+	/**
+	 * Source bands used, rows of the current band used and current source
+	 * band, before row d of the form is chosen.
+	 */
+	private final int[] usedBands, usedRows, bandOf;
+
+	/**
+	 * Source rows in the order they are tried as the first row, and their
+	 * number of clues.
+	 */
+	private final int[] firstRows, clueCount;
+
+	/**
+	 * Next unused label.
+	 */
+	private int nextLabel;
+
+	/**
+	 * Position where the current path became smaller than the best form
+	 * (EQUAL if it is not).
+	 */
+	private int lessAt;
+
+	/**
+	 * Custom Ctor for a 9x9 canonicalizer.
+	 */
+	public Canonicalizer() {
+		this(3);
+	}
+
+	/**
+	 * Custom Ctor for a canonicalizer of nxn boxes.
+	 *
+	 * @param boxSize
+	 *            Box size n.
+	 */
+	public Canonicalizer(final int boxSize) {
+		if (boxSize < 2 || boxSize > BitmaskEngine.MAX_BOX_SIZE) {
+			throw new IllegalArgumentException("Unsupported box size: " + boxSize);
+		}
+		box = boxSize;
+		size = boxSize * boxSize;
+		source = new int[size * size];
+		best = new int[size * size];
+		current = new int[size * size];
+		labels = new int[size + 1];
+		fixed = new int[size + 1][size];
+		members = new int[size + 1][size];
+		rowOf = new int[size];
+		usedBands = new int[size + 1];
+		usedRows = new int[size + 1];
+		bandOf = new int[size + 1];
+		firstRows = new int[size];
+		clueCount = new int[size];
+	}
+	/**
+	 * Canonical form of a puzzle.
+	 *
+	 * @param puzzle
+	 *            Puzzle (or solution grid).
+	 * @return Smallest equivalent board.
+	 */
+	public final Board canonical(final Board puzzle) {
+		search(puzzle);
+		final byte[] cells = new byte[best.length];
+		for (int cell = 0; cell < cells.length; ++cell) {
+			cells[cell] = (byte) best[cell];
+		}
+		return new Board(box, cells);
+	}
+
+	/**
+	 * 64-bit fingerprint of the canonical form (equal for equivalent puzzles).
+	 *
+	 * @param puzzle
+	 *            Puzzle.
+	 * @return Fingerprint.
+	 */
+	public final long fingerprint(final Board puzzle) {
+		search(puzzle);
+		long h = 0x9e3779b97f4a7c15L * best.length;
+		for (int cell = 0; cell < best.length; cell += 8) {
+			long word = 0;
+			for (int i = cell; i < Math.min(cell + 8, best.length); ++i) {
+				word = word << 5 | best[i];
+			}
+			h = mix(h ^ word);
+		}
+		return h;
+	}
+
+	/**
+	 * Stafford's mix13 (the finalizer of SplittableRandom).
+	 *
+	 * @param z
+	 *            Value to mix.
+	 * @return Mixed value.
+	 */
+	private static final long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Fill best with the canonical form of a puzzle.
+	 *
+	 * @param puzzle
+	 *            Puzzle.
+	 */
+	private final void search(final Board puzzle) {
+		if (puzzle.boxSize() != box) {
+			throw new IllegalArgumentException("Canonicalizer for box size " + box + ", board has "
+					+ puzzle.boxSize());
+		}
+		Arrays.fill(best, UNKNOWN);
+		Arrays.fill(labels, 0);
+		nextLabel = 1;
+		for (int transpose = 0; transpose < 2; ++transpose) {
+			for (int row = 0; row < size; ++row) {
+				for (int col = 0; col < size; ++col) {
+					source[row * size + col] = transpose == 0 ? puzzle.get(row, col) : puzzle.get(col, row);
+				}
+			}
+			// Sparse rows first: they give long runs of empty cells, so a small
+			// best form is found early and cuts more.
+			for (int row = 0; row < size; ++row) {
+				int clues = 0;
+				for (int col = 0; col < size; ++col) {
+					if (source[row * size + col] != 0) {
+						++clues;
+					}
+				}
+				int i = row;
+				while (i > 0 && clueCount[i - 1] > clues) {
+					clueCount[i] = clueCount[i - 1];
+					firstRows[i] = firstRows[i - 1];
+					--i;
+				}
+				clueCount[i] = clues;
+				firstRows[i] = row;
+			}
+			for (final int first : firstRows) {
+				lessAt = EQUAL;
+				rowOf[0] = first;
+				usedBands[1] = 1 << (first / box);
+				usedRows[1] = 1 << (first % box);
+				bandOf[1] = first / box;
+				cells(0, 0, 0);
+			}
+		}
+	}
+
+	/**
+	 * Choose the source row of a row of the form.
+	 *
+	 * @param depth
+	 *            Row of the form to choose.
+	 */
+	private final void rows(final int depth) {
+		if (depth == size) {
+			if (lessAt != EQUAL) {
+				System.arraycopy(current, 0, best, 0, best.length);
+				lessAt = EQUAL;
+			}
+			return;
+		}
+		final boolean newBand = depth % box == 0;
+		for (int candidate = 0; candidate < size; ++candidate) {
+			final int b = candidate / box;
+			final int r = candidate % box;
+			if (newBand ? (usedBands[depth] & (1 << b)) != 0
+					: b != bandOf[depth] || (usedRows[depth] & (1 << r)) != 0) {
+				continue;
+			}
+			rowOf[depth] = candidate;
+			usedBands[depth + 1] = usedBands[depth] | 1 << b;
+			usedRows[depth + 1] = newBand ? 1 << r : usedRows[depth] | 1 << r;
+			bandOf[depth + 1] = b;
+			cells(depth, 0, 0);
+		}
+	}
+
+	/**
+	 * Place the cells of a row of the form, starting at a column.
+	 *
+	 * @param depth
+	 *            Row of the form.
+	 * @param pos
+	 *            Column of the form.
+	 * @param usedStacks
+	 *            Source stacks placed so far (first row only, where the stack
+	 *            order is chosen).
+	 */
+	private final void cells(final int depth, final int pos, final int usedStacks) {
+		if (pos == size) {
+			rows(depth + 1);
+			return;
+		}
+		if (depth == 0) {
+			for (int stack = 0; stack < box; ++stack) {
+				if ((usedStacks & (1 << stack)) == 0) {
+					group(depth, pos, ((1 << box) - 1) << (stack * box), usedStacks | 1 << stack);
+				}
+			}
+			return;
+		}
+		final int col = fixed[depth][pos];
+		if (col < 0) {
+			group(depth, pos, members[depth][pos], usedStacks);
+			return;
+		}
+		final int val = source[rowOf[depth] * size + col];
+		final boolean fresh = val != 0 && labels[val] == 0;
+		if (put(depth * size + pos, val == 0 ? 0 : fresh ? nextLabel : labels[val])) {
+			if (fresh) {
+				labels[val] = nextLabel++;
+			}
+			fixed[depth + 1][pos] = col;
+			members[depth + 1][pos] = 0;
+			cells(depth, pos + 1, usedStacks);
+			if (fresh) {
+				labels[val] = 0;
+				--nextLabel;
+			}
+		}
+	}
+
+	/**
+	 * Place a group of interchangeable columns in the smallest order: empty
+	 * cells first (they stay a group), then labelled values by label, then
+	 * values seen for the first time (every order of those is tried).
+	 *
+	 * @param depth
+	 *            Row of the form.
+	 * @param pos
+	 *            First column of the group.
+	 * @param group
+	 *            Source columns of the group (bitmask).
+	 * @param usedStacks
+	 *            Source stacks placed so far.
+	 */
+	private final void group(final int depth, final int pos, final int group, final int usedStacks) {
+		final int base = rowOf[depth] * size;
+		final int start = depth * size;
+		final int[] nextFixed = fixed[depth + 1];
+		final int[] nextMembers = members[depth + 1];
+		int empty = 0, known = 0, fresh = 0;
+		for (int rest = group; rest != 0; rest &= rest - 1) {
+			final int col = Integer.numberOfTrailingZeros(rest);
+			final int val = source[base + col];
+			if (val == 0) {
+				empty |= 1 << col;
+			} else if (labels[val] != 0) {
+				known |= 1 << col;
+			} else {
+				fresh |= 1 << col;
+			}
+		}
+		int p = pos;
+		for (int rest = empty; rest != 0; rest &= rest - 1) {
+			if (!put(start + p, 0)) {
+				return;
+			}
+			nextFixed[p] = -1;
+			nextMembers[p] = 0;
+			++p;
+		}
+		if (Integer.bitCount(empty) == 1) {
+			nextFixed[pos] = Integer.numberOfTrailingZeros(empty);
+		} else if (empty != 0) {
+			nextMembers[pos] = empty;
+		}
+		while (known != 0) {
+			int min = -1;
+			for (int rest = known; rest != 0; rest &= rest - 1) {
+				final int col = Integer.numberOfTrailingZeros(rest);
+				if (min < 0 || labels[source[base + col]] < labels[source[base + min]]) {
+					min = col;
+				}
+			}
+			known &= ~(1 << min);
+			if (!put(start + p, labels[source[base + min]])) {
+				return;
+			}
+			nextFixed[p] = min;
+			nextMembers[p] = 0;
+			++p;
+		}
+		fresh(depth, p, fresh, pos + Integer.bitCount(group), usedStacks);
+	}
+
+	/**
+	 * Try every order of the columns of a group whose values appear for the
+	 * first time.
+	 *
+	 * @param depth
+	 *            Row of the form.
+	 * @param pos
+	 *            Column of the form.
+	 * @param fresh
+	 *            Source columns left to place (bitmask).
+	 * @param end
+	 *            Column after the group.
+	 * @param usedStacks
+	 *            Source stacks placed so far.
+	 */
+	private final void fresh(final int depth, final int pos, final int fresh, final int end, final int usedStacks) {
+		if (fresh == 0) {
+			cells(depth, end, usedStacks);
+			return;
+		}
+		if (!put(depth * size + pos, nextLabel)) {
+			return;
+		}
+		for (int rest = fresh; rest != 0; rest &= rest - 1) {
+			final int col = Integer.numberOfTrailingZeros(rest);
+			final int val = source[rowOf[depth] * size + col];
+			// Every column gives the same label here; the order matters later.
+			put(depth * size + pos, nextLabel);
+			labels[val] = nextLabel++;
+			fixed[depth + 1][pos] = col;
+			members[depth + 1][pos] = 0;
+			fresh(depth, pos + 1, fresh & ~(1 << col), end, usedStacks);
+			labels[val] = 0;
+			--nextLabel;
+		}
+	}
+
+	/**
+	 * Write a label of the current path and compare it with the best form.
+	 *
+	 * @param pos
+	 *            Position in the form.
+	 * @param label
+	 *            Label.
+	 * @return false, if the path is larger than the best form (cut it).
+	 */
+	private final boolean put(final int pos, final int label) {
+		if (lessAt >= pos) {
+			lessAt = EQUAL;
+		}
+		if (lessAt == EQUAL) {
+			if (label > best[pos]) {
+				return false;
+			}
+			if (label < best[pos]) {
+				lessAt = pos;
+			}
+		}
+		current[pos] = label;
+		return true;
+	}
+}
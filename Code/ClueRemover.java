@@ -0,0 +1,192 @@
+import java.util.BitSet;
+import java.util.random.RandomGenerator;
+
+/**
+ * Removes clues from a puzzle with exactly one solution, in a chosen order,
+ * without ever making it ambiguous. A clue is removed if no solution with a
+ * different value in its cell exists (BitmaskEngine.countAlternatives), so
+ * every removal costs one refutation instead of a full solution count. A clue
+ * that cannot be removed stays needed after any further removal, so a single
+ * pass over all cells gives a minimal puzzle. Not thread-safe (one remover
+ * per thread).
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class ClueRemover {
+	/**
+	 * Default number of search nodes per removal check.
+	 */
+	public static final long DEFAULT_CHECK_BUDGET = 20000;
+
+	/**
+	 * Engine doing the checks.
+	 */
+	private final BitmaskEngine engine;
+
+	/**
+	 * Search nodes a single check may visit before the clue is kept.
+	 */
+	private final long checkBudget;
+
+	/**
+	 * Checks of the last call.
+	 */
+	private int checks;
+
+	/**
+	 * Custom Ctor for a 9x9 remover.
+	 */
+	public ClueRemover() {
+		this(3);
+	}
+
+	/**
+	 * Custom Ctor for a remover of nxn boxes.
+	 *
+	 * @param boxSize
+	 *            Box size n.
+	 */
+	public ClueRemover(final int boxSize) {
+		this(new BitmaskEngine(boxSize), DEFAULT_CHECK_BUDGET);
+	}
+
+	/**
+	 * Custom Ctor for a remover working with an existing engine.
+	 *
+	 * @param engine
+	 *            Engine (used by this thread only).
+	 * @param checkBudget
+	 *            Search nodes per check (a check that runs out keeps the clue).
+	 */
+	ClueRemover(final BitmaskEngine engine, final long checkBudget) {
+		this.engine = engine;
+		this.checkBudget = checkBudget;
+	}
+
+	/**
+	 * All cells in random order.
+	 *
+	 * @param randomGenerator
+	 *            Random source.
+	 * @return Shuffled cell indices (row * size + col).
+	 */
+	public final int[] randomOrder(final RandomGenerator randomGenerator) {
+		final int[] order = new int[engine.cellCount()];
+		for (int i = 0; i < order.length; ++i) {
+			final int j = randomGenerator.nextInt(i + 1);
+			order[i] = order[j];
+			order[j] = i;
+		}
+		return order;
+	}
+
+	/**
+	 * Remove clues in the given order until the target is reached.
+	 *
+	 * @param grid
+	 *            Puzzle with exactly one solution (modified in place, of the
+	 *            engine's size).
+	 * @param order
+	 *            Cells to try (row * size + col), first one first; cells
+	 *            left out are not removed, repeated cells are tried again
+	 *            only if their clue is not proven needed yet.
+	 * @param targetClues
+	 *            Stop as soon as the puzzle has this many clues.
+	 * @param budgetNanos
+	 *            Time budget (Long.MAX_VALUE = none).
+	 * @return Why the removal stopped.
+	 * @throws IllegalArgumentException
+	 *             If the grid does not have the engine's size or the order
+	 *             holds no cell.
+	 */
+	public final Outcome remove(final int[][] grid, final int[] order, final int targetClues,
+			final long budgetNanos) {
+		final long start = System.nanoTime();
+		final int size = grid.length;
+		if (size * size != engine.cellCount()) {
+			throw new IllegalArgumentException(
+					"Remover for " + engine.cellCount() + " cells, grid has " + size * size);
+		}
+		int clues = 0;
+		for (final int[] row : grid) {
+			if (row.length != size) {
+				throw new IllegalArgumentException("Expected " + size + " cells per row, got " + row.length);
+			}
+			for (final int val : row) {
+				if (val != 0) {
+					++clues;
+				}
+			}
+		}
+		for (final int cell : order) {
+			if (cell < 0 || cell >= size * size) {
+				throw new IllegalArgumentException("No cell: " + cell);
+			}
+		}
+		checks = 0;
+		// Clues proven to be needed (they stay needed after further removals).
+		final BitSet needed = new BitSet(size * size);
+		for (final int cell : order) {
+			if (clues <= targetClues) {
+				return Outcome.TARGET;
+			}
+			if (System.nanoTime() - start > budgetNanos) {
+				return Outcome.TIMEOUT;
+			}
+			final int row = cell / size;
+			final int col = cell % size;
+			if (grid[row][col] == 0 || needed.get(cell)) {
+				continue;
+			}
+			++checks;
+			final int alternatives = engine.countAlternatives(grid, row, col, checkBudget);
+			if (alternatives == 0) {
+				grid[row][col] = 0;
+				--clues;
+			} else if (alternatives > 0) {
+				needed.set(cell);
+			}
+		}
+		if (clues <= targetClues) {
+			return Outcome.TARGET;
+		}
+		// Minimal only if every remaining clue was proven to be needed.
+		return needed.cardinality() == clues ? Outcome.MINIMAL : Outcome.EXHAUSTED;
+	}
+
+	/**
+	 * Removal checks of the last call.
+	 *
+	 * @return Checks.
+	 */
+	public final int checks() {
+		return checks;
+	}
+
+	/**
+	 * Enum encoding why a removal stopped.
+	 *
+	 * @author André Dalwigk
+	 * @version 1.0
+	 */
+	public enum Outcome {
+		/**
+		 * The target clue count was reached.
+		 */
+		TARGET,
+		/**
+		 * No clue can be removed any more.
+		 */
+		MINIMAL,
+		/**
+		 * All cells of the order were tried, but some clues are not proven
+		 * needed (their check ran out of budget, or the order left them out).
+		 */
+		EXHAUSTED,
+		/**
+		 * The time budget ran out.
+		 */
+		TIMEOUT
+	}
+}
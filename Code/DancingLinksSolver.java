@@ -0,0 +1,323 @@
+import java.util.Arrays;
+
+/**
+ * Sudoku solver based on Knuth's Dancing Links (Algorithm X). The puzzle is
+ * modelled as an exact cover problem with 729 rows (cell, value) and 324
+ * columns (cell, row/value, column/value, box/value). The matrix is built once
+ * per solver and restored after every call, so no nodes are allocated per
+ * puzzle.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class DancingLinksSolver implements Solver {
+	/**
+	 * Dimension.
+	 */
+	private static final int SIZE = 9, CELLS = SIZE * SIZE;
+
+	/**
+	 * Number of constraint columns and candidate rows.
+	 */
+	private static final int COLUMNS = 4 * CELLS, ROWS = CELLS * SIZE;
+
+	/**
+	 * Index of the root node (column headers follow at 1..COLUMNS).
+	 */
+	private static final int ROOT = 0;
+
+	/**
+	 * Node arena: left, right, up, down, column header and candidate row of
+	 * every node.
+	 */
+	private final int[] left, right, up, down, column, row;
+
+	/**
+	 * Number of nodes per column.
+	 */
+	private final int[] size = new int[COLUMNS + 1];
+
+	/**
+	 * First node of every candidate row.
+	 */
+	private final int[] rowStart = new int[ROWS];
+
+	/**
+	 * Chosen candidate rows (givens first, then the search).
+	 */
+	private final int[] chosen = new int[CELLS];
+
+	/**
+	 * Values used per row, column and box (validation of the givens).
+	 */
+	private final int[] rowMask = new int[SIZE], colMask = new int[SIZE], boxMask = new int[SIZE];
+
+	/**
+	 * Number of givens on top of the chosen stack.
+	 */
+	private int givens;
+
+	/**
+	 * Custom Ctor for a Dancing Links solver (builds the node arena).
+	 */
+	public DancingLinksSolver() {
+		final int nodes = 1 + COLUMNS + 4 * ROWS;
+		left = new int[nodes];
+		right = new int[nodes];
+		up = new int[nodes];
+		down = new int[nodes];
+		column = new int[nodes];
+		row = new int[nodes];
+
+		for (int col = 0; col <= COLUMNS; ++col) {
+			left[col] = col - 1;
+			right[col] = col + 1;
+			up[col] = col;
+			down[col] = col;
+			column[col] = col;
+		}
+		left[ROOT] = COLUMNS;
+		right[COLUMNS] = ROOT;
+
+		int node = COLUMNS + 1;
+		for (int candidate = 0; candidate < ROWS; ++candidate) {
+			final int cell = candidate / SIZE;
+			final int val = candidate % SIZE;
+			final int r = cell / SIZE;
+			final int c = cell % SIZE;
+			final int b = (r / 3) * 3 + c / 3;
+			rowStart[candidate] = node;
+			final int first = node;
+			node = append(node, candidate, 1 + cell);
+			node = append(node, candidate, 1 + CELLS + r * SIZE + val);
+			node = append(node, candidate, 1 + 2 * CELLS + c * SIZE + val);
+			node = append(node, candidate, 1 + 3 * CELLS + b * SIZE + val);
+			for (int i = first; i < node; ++i) {
+				left[i] = i == first ? node - 1 : i - 1;
+				right[i] = i == node - 1 ? first : i + 1;
+			}
+		}
+	}
+
+	/**
+	 * Append a node at the bottom of a column.
+	 *
+	 * @param node
+	 *            Index of the new node.
+	 * @param candidate
+	 *            Candidate row the node belongs to.
+	 * @param col
+	 *            Column header.
+	 * @return Index of the next free node.
+	 */
+	private final int append(final int node, final int candidate, final int col) {
+		row[node] = candidate;
+		column[node] = col;
+		up[node] = up[col];
+		down[node] = col;
+		down[up[col]] = node;
+		up[col] = node;
+		++size[col];
+		return node + 1;
+	}
+
+	/**
+	 * Remove a column and all rows intersecting it.
+	 *
+	 * @param col
+	 *            Column header.
+	 */
+	private final void cover(final int col) {
+		right[left[col]] = right[col];
+		left[right[col]] = left[col];
+		for (int i = down[col]; i != col; i = down[i]) {
+			for (int j = right[i]; j != i; j = right[j]) {
+				down[up[j]] = down[j];
+				up[down[j]] = up[j];
+				--size[column[j]];
+			}
+		}
+	}
+
+	/**
+	 * Reinsert a column (exact inverse of cover).
+	 *
+	 * @param col
+	 *            Column header.
+	 */
+	private final void uncover(final int col) {
+		for (int i = up[col]; i != col; i = up[i]) {
+			for (int j = left[i]; j != i; j = left[j]) {
+				++size[column[j]];
+				down[up[j]] = j;
+				up[down[j]] = j;
+			}
+		}
+		right[left[col]] = col;
+		left[right[col]] = col;
+	}
+
+	/**
+	 * Select a candidate row (cover all of its columns).
+	 *
+	 * @param node
+	 *            Any node of the row.
+	 */
+	private final void select(final int node) {
+		cover(column[node]);
+		for (int j = right[node]; j != node; j = right[j]) {
+			cover(column[j]);
+		}
+	}
+
+	/**
+	 * Deselect a candidate row (inverse of select).
+	 *
+	 * @param node
+	 *            The node select was called with.
+	 */
+	private final void deselect(final int node) {
+		for (int j = left[node]; j != node; j = left[j]) {
+			uncover(column[j]);
+		}
+		uncover(column[node]);
+	}
+
+	/**
+	 * Algorithm X. When the limit is reached, the rows of the last solution stay
+	 * on the chosen stack, but the matrix is always restored before returning.
+	 *
+	 * @param depth
+	 *            Number of rows chosen so far.
+	 * @param limit
+	 *            Stop after this many exact covers.
+	 * @return Number of exact covers found (at most limit).
+	 */
+	private final int search(final int depth, final int limit) {
+		if (right[ROOT] == ROOT) {
+			return 1;
+		}
+
+		int best = right[ROOT];
+		for (int col = right[best]; col != ROOT; col = right[col]) {
+			if (size[col] < size[best]) {
+				best = col;
+			}
+		}
+		if (size[best] == 0) {
+			return 0;
+		}
+
+		cover(best);
+		int found = 0;
+		for (int i = down[best]; i != best && found < limit; i = down[i]) {
+			chosen[depth] = row[i];
+			for (int j = right[i]; j != i; j = right[j]) {
+				cover(column[j]);
+			}
+			found += search(depth + 1, limit - found);
+			for (int j = left[i]; j != i; j = left[j]) {
+				uncover(column[j]);
+			}
+		}
+		uncover(best);
+		return found;
+	}
+
+	/**
+	 * Remove the givens from the matrix again.
+	 */
+	private final void releaseGivens() {
+		while (givens > 0) {
+			deselect(rowStart[chosen[--givens]]);
+		}
+	}
+
+	/**
+	 * Select the givens of a puzzle.
+	 *
+	 * @param grid
+	 *            Sudoku puzzle.
+	 * @return false, if the givens contradict each other (nothing is selected
+	 *         then).
+	 * @throws IllegalArgumentException
+	 *             If the grid is no 9x9 grid of the values 0 to 9.
+	 */
+	private final boolean selectGivens(final int[][] grid) {
+		checkGrid(grid);
+		givens = 0;
+		Arrays.fill(rowMask, 0);
+		Arrays.fill(colMask, 0);
+		Arrays.fill(boxMask, 0);
+		for (int r = 0; r < SIZE; ++r) {
+			for (int c = 0; c < SIZE; ++c) {
+				final int val = grid[r][c];
+				if (val != 0) {
+					final int bit = 1 << val;
+					final int b = (r / 3) * 3 + c / 3;
+					if (((rowMask[r] | colMask[c] | boxMask[b]) & bit) != 0) {
+						releaseGivens();
+						return false;
+					}
+					rowMask[r] |= bit;
+					colMask[c] |= bit;
+					boxMask[b] |= bit;
+					chosen[givens] = (r * SIZE + c) * SIZE + val - 1;
+					select(rowStart[chosen[givens++]]);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check the shape and values of a puzzle (a wrong value would select the
+	 * candidate of another cell).
+	 *
+	 * @param grid
+	 *            Sudoku puzzle.
+	 * @throws IllegalArgumentException
+	 *             If the grid is no 9x9 grid of the values 0 to 9.
+	 */
+	private static final void checkGrid(final int[][] grid) {
+		if (grid.length != SIZE) {
+			throw new IllegalArgumentException("Expected " + SIZE + " rows, got " + grid.length);
+		}
+		for (int r = 0; r < SIZE; ++r) {
+			if (grid[r].length != SIZE) {
+				throw new IllegalArgumentException(
+						"Expected " + SIZE + " cells in row " + r + ", got " + grid[r].length);
+			}
+			for (int c = 0; c < SIZE; ++c) {
+				if (grid[r][c] < 0 || grid[r][c] > SIZE) {
+					throw new IllegalArgumentException("Invalid value " + grid[r][c] + " at " + r + "/" + c);
+				}
+			}
+		}
+	}
+
+	@Override
+	public final int[][] solve(final int[][] toSolve) {
+		if (!selectGivens(toSolve)) {
+			return toSolve;
+		}
+		if (search(givens, 1) == 1) {
+			for (int depth = givens; depth < CELLS; ++depth) {
+				final int cell = chosen[depth] / SIZE;
+				toSolve[cell / SIZE][cell % SIZE] = chosen[depth] % SIZE + 1;
+			}
+		}
+		releaseGivens();
+		return toSolve;
+	}
+
+	@Override
+	public final int countSolutions(final int[][] grid, final int limit) {
+		if (limit <= 0 || !selectGivens(grid)) {
+			return 0;
+		}
+		final int found = search(givens, limit);
+		releaseGivens();
+		return found;
+	}
+}
@@ -1,28 +1,93 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
- * A document consists of a finite number of LaTeX commands.
+ * A document consists of a finite number of LaTeX commands. They are written
+ * to the file as they are added, so memory use does not grow with the book.
  * 
- * @author Andr Dalwigk
+ * @author André Dalwigk
  * @version 1.0
  *
  */
 public final class Document {
 	/**
-	 * Content of the document.
+	 * Size of the write buffer in chars.
 	 */
-	private String content = "";
+	private static final int BUFFER_SIZE = 1 << 16;
 
 	/**
-	 * PrintWriter for writing to a file.
+	 * Cell tokens of the macro templates (the digits, typeset by
+	 * \sudokudigit).
 	 */
-	private final PrintWriter output;
+	private static final String[] DIGITS = { "0", "1", "2", "3", "4", "5", "6", "7", "8", "9" };
 
 	/**
-	 * Language for the Sudoku puzzle.
+	 * Number of puzzles per page and of solutions per page; chapters hold a
+	 * multiple of both.
+	 */
+	private static final int PUZZLES_PER_PAGE = 2, SOLUTIONS_PER_PAGE = 12;
+
+	/**
+	 * Name of the file (opened on the first write, so an existing file is
+	 * kept until the document really writes).
+	 */
+	private final String fileName;
+
+	/**
+	 * PrintWriter for writing to the file (buffered, on a FileChannel; null
+	 * until the first write).
+	 */
+	private PrintWriter file;
+
+	/**
+	 * Current target: the file (null = not opened yet), or the buffer of the
+	 * chapter being built.
+	 */
+	private PrintWriter output;
+
+	/**
+	 * Directory of the document (chapter files are put next to it).
+	 */
+	private final Path directory;
+
+	/**
+	 * Name of the document (without directory) and its extension.
+	 */
+	private final String stem, type;
+
+	/**
+	 * LaTeX token of every cell value in the language of the puzzles (0 =
+	 * empty).
+	 */
+	private final String[] cellTokens;
+
+	/**
+	 * Language of the puzzles.
 	 */
 	private final Language lang;
 
@@ -34,17 +99,38 @@ public final class Document {
 	/**
 	 * Sudoku solver.
 	 */
-	private final SudokuSolver sudokuSolver;
+	private final Solver sudokuSolver;
 
 	/**
 	 * List containing all Sudokus.
 	 */
-	private final List<Integer[][]> sudokuPuzzles;
+	private final List<Board> sudokuPuzzles;
+
+	/**
+	 * List containing solved Sudoku puzzles (Delta!, null = not solved yet).
+	 */
+	private final List<Board> sudokuSolutions;
+
+	/**
+	 * Canonical forms of all puzzles created so far (null = duplicates are
+	 * not checked).
+	 */
+	private CanonicalIndex index;
+
+	/**
+	 * Emit grids as calls of the macros in LaTeXConverter.MACROS?
+	 */
+	private boolean macros;
+
+	/**
+	 * Puzzles per chapter file (0 = one file).
+	 */
+	private int chapterSize;
 
 	/**
-	 * List containing solved Sudoku puzzles.
+	 * Number of chapter files written (not skipped as unchanged).
 	 */
-	private final List<Integer[][]> sudokuSolutions;
+	private int chaptersWritten;
 
 	/**
 	 * Custom Ctor for a document.
@@ -53,16 +139,62 @@ public final class Document {
 	 *            Name of the document.
 	 * @param type
 	 *            Type of the document.
-	 * @throws FileNotFoundException
-	 *             fnfe.
 	 */
-	public Document(final String name, final String type, final Language lang) throws FileNotFoundException {
-		sudokuGenerator = new SudokuGenerator();
-		sudokuSolver = new SudokuSolver();
+	public Document(final String name, final String type, final Language lang) {
+		this(name, type, lang, new SudokuSolver());
+	}
+
+	/**
+	 * Custom Ctor for a document using a specific solver backend.
+	 * 
+	 * @param name
+	 *            Name of the document.
+	 * @param type
+	 *            Type of the document.
+	 * @param lang
+	 *            Language for the Sudoku puzzles.
+	 * @param solver
+	 *            Solver backend (e.g. SudokuSolver or DancingLinksSolver).
+	 */
+	public Document(final String name, final String type, final Language lang, final Solver solver) {
+		this(name, type, lang, solver, new SudokuGenerator());
+	}
+
+	/**
+	 * Custom Ctor for a document using a specific solver backend and generator
+	 * (a generator with a fixed seed gives the same document every time).
+	 * 
+	 * @param name
+	 *            Name of the document.
+	 * @param type
+	 *            Type of the document.
+	 * @param lang
+	 *            Language for the Sudoku puzzles.
+	 * @param solver
+	 *            Solver backend (e.g. SudokuSolver or DancingLinksSolver).
+	 * @param generator
+	 *            Generator of the Sudoku puzzles.
+	 */
+	public Document(final String name, final String type, final Language lang, final Solver solver,
+			final SudokuGenerator generator) {
+		sudokuGenerator = generator;
+		sudokuSolver = solver;
 		sudokuPuzzles = new ArrayList<>();
 		sudokuSolutions = new ArrayList<>();
 		this.lang = lang;
-		output = new PrintWriter(name + "." + type);
+		cellTokens = new String[GridTemplate.SIZE + 1];
+		for (int value = 0; value < cellTokens.length; ++value) {
+			if (lang == Language.JP) {
+				cellTokens[value] = toJapanese(value);
+			} else {
+				cellTokens[value] = value == 0 ? " " : Integer.toString(value);
+			}
+		}
+		fileName = name + "." + type;
+		final Path path = Paths.get(name).toAbsolutePath();
+		directory = path.getParent();
+		stem = path.getFileName().toString();
+		this.type = type;
 	}
 
 	/**
@@ -72,7 +204,28 @@ public final class Document {
 	 *            Data that needs to be added.
 	 */
 	public final void add(final String data) {
-		content += data;
+		output().write(data);
+	}
+
+	/**
+	 * Current target, opening the file on the first write.
+	 * 
+	 * @return Target.
+	 */
+	private final PrintWriter output() {
+		if (output == null) {
+			// Same charset and replacement as PrintWriter(String).
+			final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+			try {
+				file = new PrintWriter(new BufferedWriter(
+						Channels.newWriter(new FileOutputStream(fileName).getChannel(), encoder, -1), BUFFER_SIZE));
+			} catch (final FileNotFoundException e) {
+				throw new UncheckedIOException(e);
+			}
+			output = file;
+		}
+		return output;
 	}
 
 	/**
@@ -82,7 +235,7 @@ public final class Document {
 	 *            Title to add.
 	 */
 	public final void addTitle(final String title) {
-		content += LaTeXConverter.title(title);
+		output().write(LaTeXConverter.title(title));
 	}
 
 	/**
@@ -92,21 +245,21 @@ public final class Document {
 	 *            Author to add.
 	 */
 	public final void addAuthor(final String author) {
-		content += LaTeXConverter.author(author);
+		output().write(LaTeXConverter.author(author));
 	}
 
 	/**
 	 * Method to start a document.
 	 */
 	public final void beginDocument() {
-		content += LaTeXConverter.BEGIN_DOC;
+		output().write(LaTeXConverter.BEGIN_DOC);
 	}
 
 	/**
 	 * Method to end a document.
 	 */
 	public final void endDocument() {
-		content += LaTeXConverter.END_DOC;
+		output().write(LaTeXConverter.END_DOC);
 	}
 
 	/**
@@ -117,8 +270,8 @@ public final class Document {
 	 * @param index
 	 *            Number of the Sudoku puzzle.
 	 */
-	private final void addSudokuPuzzle(final int[][] grid, final int index) {
-		content += LaTeXConverter.sudokuGrid(convertGrid(grid), index);
+	private final void addSudokuPuzzle(final Board grid, final int index) {
+		render(macros ? GridTemplate.MACRO_PUZZLE : GridTemplate.PUZZLE, grid, null, index);
 	}
 
 	/**
@@ -131,23 +284,65 @@ public final class Document {
 	 * @param index
 	 *            Number of the Sudoku puzzle.
 	 */
-	private final void addSudokuSolution(final int[][] unsolved, final int[][] solved, final int index) {
-		content += LaTeXConverter.sudokuSolution(convertGrid(unsolved), convertGrid(solved), "orange", index);
+	private final void addSudokuSolution(final Board unsolved, final Board solved, final int index) {
+		render(macros ? GridTemplate.macroSolution("orange") : GridTemplate.solution("orange"), unsolved, solved,
+				index);
+	}
+
+	/**
+	 * Render boards straight into the file.
+	 * 
+	 * @param template
+	 *            Template.
+	 * @param first
+	 *            Puzzle.
+	 * @param second
+	 *            Solution (delta, null for puzzles).
+	 * @param index
+	 *            Number of the Sudoku puzzle.
+	 */
+	private final void render(final GridTemplate template, final Board first, final Board second, final int index) {
+		try {
+			template.render(output(), first, second, macros ? DIGITS : cellTokens, index);
+		} catch (final IOException e) {
+			// A PrintWriter does not throw (see checkError).
+			throw new UncheckedIOException(e);
+		}
 	}
 
 	/**
 	 * Method to create a human-readable version of the Sudoku puzzle.
 	 */
 	public final void addSudokuPuzzles() {
-		int tmp = 1;
-		// Fge jedes erzeugte Sudoku-Rtsel dem Content hinzu.
-		for (int counter = 0; counter < sudokuPuzzles.size(); counter++) {
+		if (chapterSize == 0) {
+			addSudokuPuzzles(0, sudokuPuzzles.size());
+			return;
+		}
+		for (int chapter = 0; chapter * chapterSize < sudokuPuzzles.size(); chapter++) {
+			final int from = chapter * chapterSize;
+			final int to = Math.min(from + chapterSize, sudokuPuzzles.size());
+			addChapter("puzzles", chapter + 1, () -> addSudokuPuzzles(from, to));
+		}
+	}
+
+	/**
+	 * Add a range of the puzzles.
+	 * 
+	 * @param from
+	 *            Index of the first puzzle.
+	 * @param to
+	 *            Index after the last puzzle.
+	 */
+	private final void addSudokuPuzzles(final int from, final int to) {
+		int tmp = from + 1;
+		// Füge jedes erzeugte Sudoku-Rätsel dem Content hinzu.
+		for (int counter = from; counter < to; counter++) {
 			add(LaTeXConverter.LINE);
 			add(LaTeXConverter.NEW_LINE_S);
-			addSudokuPuzzle(integerToInt(sudokuPuzzles.get(counter)), counter + 1);
-			// An unteres Rtsel auf einer Seite ebenfalls einen Bindestrich
-			// anfgen.
-			if (tmp % 2 == 0) {
+			addSudokuPuzzle(sudokuPuzzles.get(counter), counter + 1);
+			// An unteres Rätsel auf einer Seite ebenfalls einen Bindestrich
+			// anfügen.
+			if (tmp % PUZZLES_PER_PAGE == 0) {
 				add(LaTeXConverter.LINE);
 				add(LaTeXConverter.NEW_PAGE);
 			}
@@ -155,6 +350,150 @@ public final class Document {
 		}
 	}
 
+	/**
+	 * Write every grid as one macro call (\sudokupuzzle, \sudokusolution)
+	 * instead of the full TikZ code. The macros are defined once by
+	 * addCommands, which makes the .tex file several times smaller and faster
+	 * to compile. The pages look the same.
+	 */
+	public final void useMacros() {
+		macros = true;
+	}
+
+	/**
+	 * Add the TeX-Commands for drawing grids to the preamble
+	 * (LaTeXConverter.COMMANDS, and the macros with the digits of the
+	 * language if useMacros was called).
+	 */
+	public final void addCommands() {
+		add(LaTeXConverter.COMMANDS);
+		if (macros) {
+			add(LaTeXConverter.MACROS);
+			add(LaTeXConverter.digitCommand(cellTokens));
+		}
+	}
+
+	/**
+	 * Put the puzzle and solution pages into chapter files of a fixed number
+	 * of puzzles each (name-puzzles-1.tex, name-solutions-1.tex, ... next to
+	 * the document), joined by \include. Every chapter starts with a hash of
+	 * its content; a chapter whose file already has that hash is not written
+	 * again and keeps its timestamp, so LaTeX can rebuild only the changed
+	 * chapters (\includeonly) or compile chapters in parallel. The pages look
+	 * the same as in a single file.
+	 * 
+	 * @param puzzlesPerChapter
+	 *            Puzzles per chapter (a multiple of 12, so chapters fill
+	 *            whole pages).
+	 */
+	public final void useChapters(final int puzzlesPerChapter) {
+		chapterSize = checkChapterSize(puzzlesPerChapter);
+	}
+
+	/**
+	 * Check a chapter size for useChapters (e.g. a command line option, before
+	 * a document is created).
+	 * 
+	 * @param puzzlesPerChapter
+	 *            Puzzles per chapter.
+	 * @return puzzlesPerChapter.
+	 * @throws IllegalArgumentException
+	 *             If it is no positive multiple of 12.
+	 */
+	public static final int checkChapterSize(final int puzzlesPerChapter) {
+		if (puzzlesPerChapter <= 0 || puzzlesPerChapter % SOLUTIONS_PER_PAGE != 0) {
+			throw new IllegalArgumentException(
+					"Chapters need a positive multiple of " + SOLUTIONS_PER_PAGE + " puzzles: " + puzzlesPerChapter);
+		}
+		return puzzlesPerChapter;
+	}
+
+	/**
+	 * Number of chapter files written so far (unchanged chapters are not
+	 * counted).
+	 * 
+	 * @return Written chapters.
+	 */
+	public final int chaptersWritten() {
+		return chaptersWritten;
+	}
+
+	/**
+	 * Build a chapter, write it to its own file if it changed and include it.
+	 * 
+	 * @param kind
+	 *            Part of the book (puzzles or solutions).
+	 * @param number
+	 *            Number of the chapter (from 1).
+	 * @param body
+	 *            Adds the content of the chapter.
+	 */
+	private final void addChapter(final String kind, final int number, final Runnable body) {
+		final StringWriter chapter = new StringWriter();
+		output = new PrintWriter(chapter);
+		try {
+			body.run();
+		} finally {
+			output = file;
+		}
+		final String chapterName = stem + "-" + kind + "-" + number;
+		try {
+			if (writeChapter(directory.resolve(chapterName + "." + type), chapter.toString())) {
+				chaptersWritten++;
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		add(LaTeXConverter.include(chapterName));
+	}
+
+	/**
+	 * Write a chapter file unless it already has the same content.
+	 * 
+	 * @param chapterFile
+	 *            File of the chapter.
+	 * @param content
+	 *            LaTeX code of the chapter.
+	 * @return true, if the file was written.
+	 * @throws IOException
+	 *             ioe.
+	 */
+	private static final boolean writeChapter(final Path chapterFile, final String content) throws IOException {
+		final byte[] bytes = content.getBytes(Charset.defaultCharset());
+		final String hash;
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+			hash = String.format("%% sha256 %064x", new BigInteger(1, digest));
+		} catch (final NoSuchAlgorithmException e) {
+			// Every JRE has SHA-256.
+			throw new IllegalStateException(e);
+		}
+		if (Files.exists(chapterFile)) {
+			try (BufferedReader reader = Files.newBufferedReader(chapterFile, StandardCharsets.ISO_8859_1)) {
+				if (hash.equals(reader.readLine())) {
+					return false;
+				}
+			}
+		}
+		try (OutputStream out = Files.newOutputStream(chapterFile)) {
+			out.write((hash + "\n").getBytes(StandardCharsets.ISO_8859_1));
+			out.write(bytes);
+		}
+		return true;
+	}
+
+	/**
+	 * Reject puzzles whose canonical form is already part of an index (e.g. an
+	 * archive loaded with CanonicalIndex.load). Every puzzle created afterwards
+	 * is added to it.
+	 * 
+	 * @param puzzleIndex
+	 *            Index of known puzzles.
+	 */
+	public final void useIndex(final CanonicalIndex puzzleIndex) {
+		index = puzzleIndex;
+	}
+
 	/**
 	 * Create Sudoku puzzle.
 	 * 
@@ -162,79 +501,162 @@ public final class Document {
 	 *            Number of Sudoku puzzles.
 	 */
 	public final void createSudokuPuzzles(final int amount) {
-		// TODO Different levels of difficulty.
-		for (int counter = 0; counter < amount; counter++) {
-			sudokuPuzzles.add(intToInteger(sudokuGenerator.createPuzzle(SudokuGenerator.Difficulty.HARD)));
-		}
+		createSudokuPuzzles(amount, false);
 	}
 
 	/**
-	 * Convert int[][] to Integer[][] (shame on you, javac!)
+	 * Create Sudoku puzzles, optionally on all cores (common fork-join pool).
+	 * Puzzle number i is always puzzle i of the generator's sequence, so both
+	 * modes create the same puzzles in the same order. If an index is used,
+	 * duplicates are replaced by further puzzles of the sequence, decided in
+	 * puzzle order, so the result stays the same in both modes.
 	 * 
-	 * @param toConvert
-	 *            int-array to box.
-	 * @return Boxed Array.
-	 */
-	private final Integer[][] intToInteger(final int[][] toConvert) {
-		Integer[][] resultGrid = new Integer[toConvert.length][toConvert[0].length];
-		for (int row = 0; row < resultGrid.length; row++) {
-			for (int col = 0; col < resultGrid[0].length; col++) {
-				resultGrid[row][col] = toConvert[row][col];
+	 * @param amount
+	 *            Number of Sudoku puzzles.
+	 * @param parallel
+	 *            Generate in parallel?
+	 */
+	public final void createSudokuPuzzles(final int amount, final boolean parallel) {
+		// TODO Different levels of difficulty.
+		final int first = sudokuPuzzles.size();
+		final Board[] puzzles = new Board[amount];
+		int[] pending = IntStream.range(0, amount).toArray();
+		// Attempt k of puzzle i uses index i + k * 2^32 of the sequence.
+		for (long attempt = 0; pending.length > 0; ++attempt) {
+			final long offset = (attempt << 32) + first;
+			final int[] slots = pending;
+			final Board[] candidates = stream(slots.length, parallel)
+					.mapToObj(i -> sudokuGenerator.createBoard(SudokuGenerator.Difficulty.HARD, offset + slots[i]))
+					.toArray(Board[]::new);
+			if (index == null) {
+				for (int i = 0; i < pending.length; i++) {
+					puzzles[pending[i]] = candidates[i];
+				}
+				break;
+			}
+			final ThreadLocal<Canonicalizer> canonicalizers = ThreadLocal
+					.withInitial(() -> new Canonicalizer(candidates[0].boxSize()));
+			final long[] fingerprints = stream(pending.length, parallel)
+					.mapToLong(i -> canonicalizers.get().fingerprint(candidates[i])).toArray();
+			int rejected = 0;
+			for (int i = 0; i < pending.length; i++) {
+				if (index.add(fingerprints[i])) {
+					puzzles[pending[i]] = candidates[i];
+				} else {
+					pending[rejected++] = pending[i];
+				}
 			}
+			pending = Arrays.copyOf(pending, rejected);
 		}
-		return resultGrid;
+		sudokuPuzzles.addAll(Arrays.asList(puzzles));
+		sudokuSolutions.addAll(Collections.nCopies(amount, null));
 	}
 
 	/**
-	 * Convert Integer[][] to int[][] (shame on you, javac!)
+	 * Take Sudoku puzzles from a lazy source (e.g. SudokuGenerator.boards with
+	 * filters), consuming it puzzle by puzzle until enough are taken. If an
+	 * index is used, duplicates are skipped.
 	 * 
-	 * @param toConvert
-	 *            int-array to unbox.
-	 * @return unboxed array.
-	 */
-	private final int[][] integerToInt(final Integer[][] toConvert) {
-		int[][] resultGrid = new int[toConvert.length][toConvert[0].length];
-		for (int row = 0; row < resultGrid.length; row++) {
-			for (int col = 0; col < resultGrid[0].length; col++) {
-				resultGrid[row][col] = toConvert[row][col];
+	 * @param source
+	 *            Puzzles (not consumed beyond the last puzzle taken).
+	 * @param amount
+	 *            Number of Sudoku puzzles.
+	 * @return Number of puzzles taken (fewer than amount if the source ran
+	 *         dry).
+	 */
+	public final int takeSudokuPuzzles(final Stream<Board> source, final int amount) {
+		final Iterator<Board> puzzles = source.iterator();
+		Canonicalizer canonicalizer = null;
+		int taken = 0;
+		while (taken < amount && puzzles.hasNext()) {
+			final Board puzzle = puzzles.next();
+			if (index != null) {
+				if (canonicalizer == null) {
+					canonicalizer = new Canonicalizer(puzzle.boxSize());
+				}
+				if (!index.add(canonicalizer.fingerprint(puzzle))) {
+					continue;
+				}
 			}
+			sudokuPuzzles.add(puzzle);
+			sudokuSolutions.add(null);
+			taken++;
 		}
-		return resultGrid;
+		return taken;
 	}
 
 	/**
-	 * Calculate the "delta" of the Sudoku puzzle and the solution.
+	 * Take Sudoku puzzles of a difficulty from a puzzle bank instead of
+	 * generating them: the first puzzles of the bank (in file order) whose
+	 * grade belongs to the difficulty. Their solutions come from the bank as
+	 * well. If an index is used, duplicates are skipped.
 	 * 
-	 * @param unsolvedGrid
-	 *            Unsolved Sudoku puzzle.
-	 * @param solvedGrid
-	 *            Solved Sudoku puzzle.
-	 * @return Matrix containing only (!) the solved numbers.
-	 */
-	private final int[][] calculateDelta(final int[][] unsolvedGrid, final int[][] solvedGrid) {
-		for (int row = 0; row < solvedGrid.length; row++) {
-			for (int col = 0; col < solvedGrid[0].length; col++) {
-				if (unsolvedGrid[row][col] != 0) {
-					solvedGrid[row][col] = 0;
-				}
+	 * @param bank
+	 *            Puzzle bank.
+	 * @param difficulty
+	 *            Difficulty of the puzzles.
+	 * @param amount
+	 *            Number of Sudoku puzzles.
+	 * @return Number of puzzles taken (fewer than amount if the bank has
+	 *         fewer).
+	 */
+	public final int drawSudokuPuzzles(final PuzzleBank bank, final SudokuGenerator.Difficulty difficulty,
+			final int amount) {
+		LogicalSolver.Technique minimum = null;
+		LogicalSolver.Technique maximum = null;
+		for (final LogicalSolver.Technique technique : LogicalSolver.Technique.values()) {
+			if (technique.difficulty() == difficulty) {
+				minimum = minimum == null ? technique : minimum;
+				maximum = technique;
 			}
 		}
-		return solvedGrid;
+		if (minimum == null) {
+			return 0;
+		}
+		// With an index, every record of the difficulty may be needed.
+		final int[] records = bank.find(minimum, maximum, 0, Integer.MAX_VALUE,
+				index == null ? amount : Integer.MAX_VALUE);
+		final Canonicalizer canonicalizer = index == null ? null : new Canonicalizer(bank.boxSize());
+		int taken = 0;
+		for (int i = 0; taken < amount && i < records.length; i++) {
+			final Board puzzle = bank.puzzle(records[i]);
+			if (index != null && !index.add(canonicalizer.fingerprint(puzzle))) {
+				continue;
+			}
+			sudokuPuzzles.add(puzzle);
+			sudokuSolutions.add(puzzle.delta(bank.solution(records[i])));
+			taken++;
+		}
+		return taken;
 	}
 
 	/**
-	 * Method to solve all Sudoku puzzles.
+	 * Indices 0..count-1, optionally as a parallel stream.
+	 * 
+	 * @param count
+	 *            Number of indices.
+	 * @param parallel
+	 *            Parallel stream?
+	 * @return Stream of indices.
+	 */
+	private static final IntStream stream(final int count, final boolean parallel) {
+		final IntStream indices = IntStream.range(0, count);
+		return parallel ? indices.parallel() : indices;
+	}
+
+	/**
+	 * Method to solve all Sudoku puzzles whose solution is not known yet.
 	 */
 	private final void solveAllSudokuPuzzles() {
-		int[][] sudokuPuzzle;
-		int[][] toSolve;
+		Board sudokuPuzzle;
 		for (int counter = 0; counter < sudokuPuzzles.size(); counter++) {
-			sudokuPuzzle = integerToInt(sudokuPuzzles.get(counter));
-			toSolve = integerToInt(sudokuPuzzles.get(counter));
-			// Lse Rtsel.
-			sudokuSolver.solve(toSolve);
-			// Delta berechnen und der Liste mit den Lsungen hinzufgen.
-			sudokuSolutions.add(intToInteger(calculateDelta(sudokuPuzzle, toSolve)));
+			if (sudokuSolutions.get(counter) != null) {
+				continue;
+			}
+			sudokuPuzzle = sudokuPuzzles.get(counter);
+			// Löse Rätsel, Delta berechnen und in der Liste mit den Lösungen
+			// speichern.
+			sudokuSolutions.set(counter, sudokuPuzzle.delta(sudokuSolver.solve(sudokuPuzzle)));
 		}
 	}
 
@@ -243,21 +665,40 @@ public final class Document {
 	 */
 	public final void addSudokuSolutions() {
 		solveAllSudokuPuzzles();
-		int tmp = 1;
+		if (chapterSize == 0) {
+			addSudokuSolutions(0, sudokuPuzzles.size());
+			return;
+		}
+		for (int chapter = 0; chapter * chapterSize < sudokuPuzzles.size(); chapter++) {
+			final int from = chapter * chapterSize;
+			final int to = Math.min(from + chapterSize, sudokuPuzzles.size());
+			addChapter("solutions", chapter + 1, () -> addSudokuSolutions(from, to));
+		}
+	}
+
+	/**
+	 * Add the solutions of a range of the puzzles.
+	 * 
+	 * @param from
+	 *            Index of the first puzzle.
+	 * @param to
+	 *            Index after the last puzzle.
+	 */
+	private final void addSudokuSolutions(final int from, final int to) {
+		int tmp = from + 1;
 		add(LaTeXConverter.BEGIN_TABULAR);
 
-		for (int counter = 0; counter < sudokuPuzzles.size(); counter++) {
-			addSudokuSolution(integerToInt(sudokuPuzzles.get(counter)), integerToInt(sudokuSolutions.get(counter)),
-					counter + 1);
+		for (int counter = from; counter < to; counter++) {
+			addSudokuSolution(sudokuPuzzles.get(counter), sudokuSolutions.get(counter), counter + 1);
 			// Table fomat (3 columns).
-			if (tmp % 12 != 0) {
+			if (tmp % SOLUTIONS_PER_PAGE != 0) {
 				if (tmp % 3 == 0) {
 					add(LaTeXConverter.NEW_LINE);
 				} else {
 					add(LaTeXConverter.NEW_COLUMN);
 				}
 			} else {
-				if (counter != sudokuPuzzles.size() - 1) {
+				if (counter != to - 1) {
 					// New page (each page has a maximum of 12 solutions.).
 					add(LaTeXConverter.NEW_PAGE);
 					add(LaTeXConverter.BEGIN_TABULAR);
@@ -268,33 +709,6 @@ public final class Document {
 		add(LaTeXConverter.END_TABULAR);
 	}
 
-	/**
-	 * Convert int[][] to String[][].
-	 * 
-	 * @param toConvert
-	 *            Grid to convert.
-	 * @return Converted grid.
-	 */
-	private final String[][] convertGrid(final int[][] toConvert) {
-		String[][] resultGrid = new String[toConvert.length][toConvert[0].length];
-		int elem = 0;
-		for (int row = 0; row < resultGrid.length; row++) {
-			for (int col = 0; col < resultGrid[0].length; col++) {
-				elem = toConvert[row][col];
-				if (lang == Language.JP) {
-					resultGrid[row][col] = toJapanese(elem);
-				} else {
-					if (elem == 0) {
-						resultGrid[row][col] = " ";
-					} else {
-						resultGrid[row][col] = Integer.toString(elem);
-					}
-				}
-			}
-		}
-		return resultGrid;
-	}
-
 	/**
 	 * Convert numbers to Kanji characters.
 	 * 
@@ -307,19 +721,38 @@ public final class Document {
 	}
 
 	/**
-	 * End a LaTeX-document.
-	 * 
-	 * @throws FileNotFoundException
+	 * Write the rest of the document to the file and close it.
 	 */
 	public final void print() {
-		output.write(content);
-		output.close();
+		// An empty document still gets its (empty) file.
+		output();
+		file.close();
+	}
+
+	/**
+	 * Write the puzzles and solutions to a PDF file, without LaTeX (see
+	 * PdfWriter).
+	 * 
+	 * @param file
+	 *            PDF file.
+	 * @param font
+	 *            TrueType font with the characters of the language (null =
+	 *            Helvetica with Arabic digits).
+	 * @throws IOException
+	 *             ioe.
+	 */
+	public final void printPdf(final Path file, final Path font) throws IOException {
+		solveAllSudokuPuzzles();
+		try (PdfWriter pdf = new PdfWriter(file, lang, font)) {
+			pdf.addPuzzlePages(sudokuPuzzles);
+			pdf.addSolutionPages(sudokuPuzzles, sudokuSolutions);
+		}
 	}
 
 	/**
 	 * Enum to encode the languages.
 	 * 
-	 * @author Andr
+	 * @author André
 	 *
 	 */
 	public enum Language {
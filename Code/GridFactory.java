@@ -0,0 +1,213 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Produces solution grids from a small pool of base grids. Every grid is a
+ * base grid with random validity-preserving transformations applied:
+ * transposition, band and stack permutations, row permutations within a band,
+ * column permutations within a stack and a relabeling of the values (about
+ * 1.2 * 10^12 variants per 9x9 base grid). A new grid costs one pass over the
+ * cells instead of a randomized search. Board variants (see Topology) only
+ * get the relabeling, the other transformations would break their extra
+ * units. The pool is never modified after construction, so one factory can
+ * be shared between threads.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class GridFactory {
+	/**
+	 * Default number of base grids.
+	 */
+	public static final int DEFAULT_POOL_SIZE = 16;
+
+	/**
+	 * Number of base grids of 25x25 factories (a fill takes about 150 ms
+	 * there, and every base grid still has more variants than will ever be
+	 * used).
+	 */
+	private static final int LARGE_POOL_SIZE = 2;
+
+	/**
+	 * Box size n.
+	 */
+	private final int box;
+
+	/**
+	 * Side length n^2.
+	 */
+	private final int size;
+
+	/**
+	 * Are band, stack and line permutations valid (classic board)?
+	 */
+	private final boolean permute;
+
+	/**
+	 * Line map of the untransformed grid (0..n^2-1).
+	 */
+	private final int[] identity;
+
+	/**
+	 * Base grids (row by row).
+	 */
+	private final int[][] pool;
+
+	/**
+	 * Custom Ctor for a factory of 9x9 grids with a random pool.
+	 */
+	public GridFactory() {
+		this(3, defaultPoolSize(3), new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Custom Ctor for a factory of nxn boxes.
+	 *
+	 * @param boxSize
+	 *            Box size n.
+	 * @param poolSize
+	 *            Number of base grids.
+	 * @param seed
+	 *            Seed of the base grids.
+	 */
+	public GridFactory(final int boxSize, final int poolSize, final long seed) {
+		this(Topology.standard(boxSize), poolSize, seed);
+	}
+
+	/**
+	 * Custom Ctor for a factory of grids of a board variant.
+	 *
+	 * @param topology
+	 *            Units of the board.
+	 * @param poolSize
+	 *            Number of base grids.
+	 * @param seed
+	 *            Seed of the base grids.
+	 */
+	public GridFactory(final Topology topology, final int poolSize, final long seed) {
+		if (poolSize < 1) {
+			throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+		}
+		final BitmaskEngine engine = new BitmaskEngine(topology);
+		final SplittableRandom randomGenerator = new SplittableRandom(seed);
+		box = topology.boxSize();
+		size = topology.size();
+		permute = topology.isStandard();
+		identity = new int[size];
+		Arrays.setAll(identity, line -> line);
+		pool = new int[poolSize][];
+		final int[][] grid = new int[size][size];
+		for (int i = 0; i < poolSize; ++i) {
+			for (final int[] row : grid) {
+				Arrays.fill(row, 0);
+			}
+			if (!engine.fill(grid, randomGenerator)) {
+				throw new IllegalArgumentException("The topology has no solution grid");
+			}
+			pool[i] = new int[size * size];
+			for (int row = 0; row < size; ++row) {
+				System.arraycopy(grid[row], 0, pool[i], row * size, size);
+			}
+		}
+	}
+
+	/**
+	 * Sensible pool size for a box size.
+	 *
+	 * @param boxSize
+	 *            Box size n.
+	 * @return Number of base grids.
+	 */
+	public static final int defaultPoolSize(final int boxSize) {
+		return boxSize < BitmaskEngine.MAX_BOX_SIZE ? DEFAULT_POOL_SIZE : LARGE_POOL_SIZE;
+	}
+
+	/**
+	 * Number of base grids.
+	 *
+	 * @return Pool size.
+	 */
+	public final int poolSize() {
+		return pool.length;
+	}
+
+	/**
+	 * Create a new random solution grid.
+	 *
+	 * @param randomGenerator
+	 *            Random source.
+	 * @return Solution grid.
+	 */
+	public final int[][] next(final RandomGenerator randomGenerator) {
+		final int[][] grid = new int[size][size];
+		next(grid, randomGenerator);
+		return grid;
+	}
+
+	/**
+	 * Overwrite a grid with a new random solution grid.
+	 *
+	 * @param grid
+	 *            Target grid (n^2 x n^2).
+	 * @param randomGenerator
+	 *            Random source.
+	 */
+	public final void next(final int[][] grid, final RandomGenerator randomGenerator) {
+		final int[] base = pool[randomGenerator.nextInt(pool.length)];
+		final boolean transpose = permute && randomGenerator.nextBoolean();
+		final int[] rowMap = permute ? lineMap(randomGenerator) : identity;
+		final int[] colMap = permute ? lineMap(randomGenerator) : identity;
+		final int[] label = new int[size + 1];
+		for (int val = 1; val <= size; ++val) {
+			final int j = 1 + randomGenerator.nextInt(val);
+			label[val] = label[j];
+			label[j] = val;
+		}
+		for (int row = 0; row < size; ++row) {
+			final int[] target = grid[row];
+			final int r = rowMap[row];
+			for (int col = 0; col < size; ++col) {
+				final int c = colMap[col];
+				target[col] = label[transpose ? base[c * size + r] : base[r * size + c]];
+			}
+		}
+	}
+
+	/**
+	 * Random line order that keeps the boxes intact: the bands (or stacks) are
+	 * shuffled, and the lines within each of them.
+	 *
+	 * @param randomGenerator
+	 *            Random source.
+	 * @return map[line] = line of the base grid.
+	 */
+	private final int[] lineMap(final RandomGenerator randomGenerator) {
+		final int[] bands = permutation(randomGenerator);
+		final int[] map = new int[size];
+		for (int band = 0; band < box; ++band) {
+			final int[] lines = permutation(randomGenerator);
+			for (int line = 0; line < box; ++line) {
+				map[band * box + line] = bands[band] * box + lines[line];
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Random permutation of 0..n-1.
+	 *
+	 * @param randomGenerator
+	 *            Random source.
+	 * @return Permutation.
+	 */
+	private final int[] permutation(final RandomGenerator randomGenerator) {
+		final int[] perm = new int[box];
+		for (int i = 0; i < box; ++i) {
+			final int j = randomGenerator.nextInt(i + 1);
+			perm[i] = perm[j];
+			perm[j] = i;
+		}
+		return perm;
+	}
+}
@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precompiled LaTeX code of a Sudoku grid (PUZZLE) or of a puzzle with its
+ * solution (solution(color)). The constant TikZ text is joined into fixed
+ * parts once; rendering only appends these parts and the cell tokens to an
+ * Appendable (a reused StringBuilder or the Writer of a Document), so no
+ * intermediate grid or strings are built per puzzle. The output is exactly
+ * that of LaTeXConverter.sudokuGrid and LaTeXConverter.sudokuSolution (which
+ * use these templates). The macro templates (MACRO_PUZZLE, macroSolution)
+ * emit a single call of the macros in LaTeXConverter.MACROS instead, with the
+ * 81 cells as one digit string (rendered with the tokens "0" to "9"). The TeX
+ * commands place 9 cells per row, so only 9x9 grids are supported. Templates
+ * are immutable and thread-safe.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class GridTemplate {
+	/**
+	 * Side length of the grids.
+	 */
+	public static final int SIZE = 9;
+
+	/**
+	 * Cells per grid.
+	 */
+	private static final int CELLS = SIZE * SIZE;
+
+	/**
+	 * Slot of the puzzle number.
+	 */
+	private static final int INDEX = -1;
+
+	/**
+	 * A puzzle, centered, with its number below.
+	 */
+	public static final GridTemplate PUZZLE = puzzle();
+
+	/**
+	 * Solution templates compiled so far, by color.
+	 */
+	private static final Map<String, GridTemplate> SOLUTIONS = new ConcurrentHashMap<>();
+
+	/**
+	 * A puzzle as call of \sudokupuzzle.
+	 */
+	public static final GridTemplate MACRO_PUZZLE = macroPuzzle();
+
+	/**
+	 * Solution macro templates compiled so far, by color.
+	 */
+	private static final Map<String, GridTemplate> MACRO_SOLUTIONS = new ConcurrentHashMap<>();
+
+	/**
+	 * Fixed parts: text[i] comes before slot i, the last one after all slots.
+	 */
+	private final String[] text;
+
+	/**
+	 * Slots: cell of the first grid (0..80), of the second grid (81..161) or
+	 * INDEX.
+	 */
+	private final int[] slots;
+
+	/**
+	 * Number of grids (1 or 2).
+	 */
+	private final int grids;
+
+	/**
+	 * Length of the fixed parts.
+	 */
+	private final int fixedLength;
+
+	/**
+	 * Custom Ctor: compile a template.
+	 *
+	 * @param parts
+	 *            Fixed text (String) and slots (Integer) in output order.
+	 */
+	private GridTemplate(final List<Object> parts) {
+		final List<String> fixed = new ArrayList<>();
+		final List<Integer> slotList = new ArrayList<>();
+		final StringBuilder pending = new StringBuilder();
+		int maxSlot = 0;
+		for (final Object part : parts) {
+			if (part instanceof String) {
+				pending.append((String) part);
+			} else {
+				fixed.add(pending.toString());
+				pending.setLength(0);
+				slotList.add((Integer) part);
+				maxSlot = Math.max(maxSlot, (Integer) part);
+			}
+		}
+		fixed.add(pending.toString());
+		text = fixed.toArray(new String[0]);
+		slots = slotList.stream().mapToInt(Integer::intValue).toArray();
+		grids = maxSlot < CELLS ? 1 : 2;
+		fixedLength = fixed.stream().mapToInt(String::length).sum();
+	}
+
+	/**
+	 * Template of a puzzle (see LaTeXConverter.sudokuGrid).
+	 *
+	 * @return Template.
+	 */
+	private static final GridTemplate puzzle() {
+		final List<Object> parts = new ArrayList<>();
+		parts.add("\\begin{center}\n" + "\\begin{tikzpicture}[scale=1]\n" + "\\begin{scope}\n"
+				+ "\\draw (0, 0) grid (9, 9);\n" + "\\draw[line width=1mm, scale=3] (0, 0) grid (3, 3);\n"
+				+ "\\setcounter{row}{1}\n");
+		addRows(parts, 0, true);
+		parts.add("\\node[anchor=center] at (4.5, -0.5) {");
+		parts.add(INDEX);
+		parts.add("};\n" + "\\end{scope}\n" + "\\end{tikzpicture}\n" + "\\end{center}\n");
+		return new GridTemplate(parts);
+	}
+
+	/**
+	 * Template of a puzzle with its solution delta printed over it (see
+	 * LaTeXConverter.sudokuSolution).
+	 *
+	 * @param color
+	 *            Color of the solution digits.
+	 * @return Template (compiled once per color).
+	 */
+	public static final GridTemplate solution(final String color) {
+		return SOLUTIONS.computeIfAbsent(color, GridTemplate::compileSolution);
+	}
+
+	/**
+	 * Compile a solution template.
+	 *
+	 * @param color
+	 *            Color of the solution digits.
+	 * @return Template.
+	 */
+	private static final GridTemplate compileSolution(final String color) {
+		final List<Object> parts = new ArrayList<>();
+		parts.add("\\begin{tikzpicture}[scale=0.5]\n" + "\\begin{scope}[xshift=12cm]\n"
+				+ "\\draw (0, 0) grid (9, 9);\n" + "\\draw[very thick, scale=3] (0, 0) grid (3, 3);\n"
+				+ "\\setcounter{row}{1}\n");
+		addRows(parts, 0, false);
+		parts.add("\\node[anchor=center] at (4.5, -0.5) {");
+		parts.add(INDEX);
+		parts.add("};\n" + "\\begin{scope}[" + color + ", font=\\sffamily\\slshape]\n" + "\\setcounter{row}{1}\n");
+		addRows(parts, CELLS, false);
+		parts.add("\\end{scope}\n" + "\\end{scope}\n" + "\\end{tikzpicture}");
+		return new GridTemplate(parts);
+	}
+
+	/**
+	 * Template of a puzzle as call of \sudokupuzzle.
+	 *
+	 * @return Template.
+	 */
+	private static final GridTemplate macroPuzzle() {
+		final List<Object> parts = new ArrayList<>();
+		parts.add("\\sudokupuzzle{");
+		addCells(parts, 0);
+		parts.add("}{");
+		parts.add(INDEX);
+		parts.add("}\n");
+		return new GridTemplate(parts);
+	}
+
+	/**
+	 * Template of a puzzle with its solution delta as call of
+	 * \sudokusolution.
+	 *
+	 * @param color
+	 *            Color of the solution digits.
+	 * @return Template (compiled once per color).
+	 */
+	public static final GridTemplate macroSolution(final String color) {
+		return MACRO_SOLUTIONS.computeIfAbsent(color, GridTemplate::compileMacroSolution);
+	}
+
+	/**
+	 * Compile a solution macro template.
+	 *
+	 * @param color
+	 *            Color of the solution digits.
+	 * @return Template.
+	 */
+	private static final GridTemplate compileMacroSolution(final String color) {
+		final List<Object> parts = new ArrayList<>();
+		parts.add("\\sudokusolution{" + color + "}{");
+		addCells(parts, 0);
+		parts.add("}{");
+		addCells(parts, CELLS);
+		parts.add("}{");
+		parts.add(INDEX);
+		parts.add("}");
+		return new GridTemplate(parts);
+	}
+
+	/**
+	 * Add the cells of a grid (without separator).
+	 *
+	 * @param parts
+	 *            Parts of the template.
+	 * @param first
+	 *            Slot of the grid's first cell.
+	 */
+	private static final void addCells(final List<Object> parts, final int first) {
+		for (int cell = 0; cell < CELLS; ++cell) {
+			parts.add(first + cell);
+		}
+	}
+
+	/**
+	 * Add the \setrow commands of a grid.
+	 *
+	 * @param parts
+	 *            Parts of the template.
+	 * @param first
+	 *            Slot of the grid's first cell.
+	 * @param lastGap
+	 *            Blank line after the last band, too?
+	 */
+	private static final void addRows(final List<Object> parts, final int first, final boolean lastGap) {
+		for (int row = 0; row < SIZE; ++row) {
+			parts.add("\\setrow {");
+			for (int col = 0; col < SIZE; ++col) {
+				if (col > 0) {
+					parts.add(col % 3 == 0 ? "}  {" : "}{");
+				}
+				parts.add(first + row * SIZE + col);
+			}
+			parts.add("}\n");
+			if (row % 3 == 2 && (row < SIZE - 1 || lastGap)) {
+				parts.add("\n");
+			}
+		}
+	}
+
+	/**
+	 * Render boards.
+	 *
+	 * @param out
+	 *            Target.
+	 * @param first
+	 *            Puzzle.
+	 * @param second
+	 *            Solution (delta) for solution templates, null for PUZZLE.
+	 * @param tokens
+	 *            LaTeX token of every value (tokens[0] for empty cells).
+	 * @param index
+	 *            Number of the puzzle.
+	 * @throws IOException
+	 *             If out throws.
+	 */
+	public final void render(final Appendable out, final Board first, final Board second, final String[] tokens,
+			final int index) throws IOException {
+		checkGrids(first.size(), second == null ? -1 : second.size());
+		for (int i = 0; i < slots.length; ++i) {
+			out.append(text[i]);
+			final int slot = slots[i];
+			if (slot == INDEX) {
+				LaTeXConverter.appendJapaneseNumber(out, index);
+			} else if (slot < CELLS) {
+				out.append(tokens[first.get(slot)]);
+			} else {
+				out.append(tokens[second.get(slot - CELLS)]);
+			}
+		}
+		out.append(text[slots.length]);
+	}
+
+	/**
+	 * Render grids of ready-made cell tokens.
+	 *
+	 * @param out
+	 *            Target.
+	 * @param first
+	 *            Tokens of the puzzle.
+	 * @param second
+	 *            Tokens of the solution for solution templates, null for
+	 *            PUZZLE.
+	 * @param index
+	 *            Number of the puzzle.
+	 * @throws IOException
+	 *             If out throws.
+	 */
+	public final void render(final Appendable out, final String[][] first, final String[][] second,
+			final int index) throws IOException {
+		checkGrids(first.length, second == null ? -1 : second.length);
+		for (int i = 0; i < slots.length; ++i) {
+			out.append(text[i]);
+			final int slot = slots[i];
+			if (slot == INDEX) {
+				LaTeXConverter.appendJapaneseNumber(out, index);
+			} else if (slot < CELLS) {
+				out.append(first[slot / SIZE][slot % SIZE]);
+			} else {
+				out.append(second[(slot - CELLS) / SIZE][(slot - CELLS) % SIZE]);
+			}
+		}
+		out.append(text[slots.length]);
+	}
+
+	/**
+	 * Check the arguments of render.
+	 *
+	 * @param firstSize
+	 *            Side length of the first grid.
+	 * @param secondSize
+	 *            Side length of the second grid (-1 = none).
+	 */
+	private final void checkGrids(final int firstSize, final int secondSize) {
+		if (firstSize != SIZE || (grids == 2 ? secondSize != SIZE : secondSize != -1)) {
+			throw new IllegalArgumentException("Template needs " + grids + " grid(s) of size " + SIZE);
+		}
+	}
+
+	/**
+	 * Rough length of the output (for sizing buffers).
+	 *
+	 * @return Length of the fixed parts plus 16 chars per slot.
+	 */
+	public final int expectedLength() {
+		return fixedLength + 16 * slots.length;
+	}
+}
@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 
 /**
@@ -60,6 +62,14 @@ public final class LaTeXConverter {
 		J_NUMBER_COMMANDS.put(1000, "\\jthousand");
 	}
 
+	/**
+	 * Kanji commands of the digits (index = digit, 0 unused) and of the places
+	 * 10, 100 and 1000 (see appendJapaneseNumber), taken from
+	 * J_NUMBER_COMMANDS.
+	 */
+	private static final String[] J_DIGIT_COMMANDS = commands(0, 1, 2, 3, 4, 5, 6, 7, 8, 9),
+			J_PLACE_COMMANDS = commands(10, 100, 1000);
+
 	/**
 	 * TeX-Commands for a Sudoku grid.
 	 */
@@ -69,6 +79,30 @@ public final class LaTeXConverter {
 			+ "\\node[anchor=center] at (\\x, \\y) {\\n};\n" + "\\stepcounter{col}\n" + "}\n" + "\\stepcounter{row}\n"
 			+ "}\n";
 
+	/**
+	 * TeX-Commands for compact output (needs COMMANDS and digitCommand):
+	 * \sudokupuzzle{cells}{number} and
+	 * \sudokusolution{color}{cells}{solution cells}{number} draw the same
+	 * pictures as sudokuGrid and sudokuSolution. The cells are given as 81
+	 * digits, row by row (0 = empty, see GridTemplate.MACRO_PUZZLE), and
+	 * typeset by \sudokudigit.
+	 */
+	public static final String MACROS = "\\newcommand\\sudokucells[1]{"
+			+ "\\setcounter{row}{1}\\setcounter{col}{1}\\sudokucell#1\\relax}\n"
+			+ "\\newcommand\\sudokucell[1]{\\ifx\\relax#1\\else\\sudokunode{#1}\\expandafter\\sudokucell\\fi}\n"
+			+ "\\newcommand\\sudokunode[1]{\n"
+			+ "\\node[anchor=center] at (\\value{col} - 0.5, 9.5 - \\value{row}) {\\sudokudigit{#1}};\n"
+			+ "\\stepcounter{col}\n" + "\\ifnum\\value{col}>9 \\setcounter{col}{1}\\stepcounter{row}\\fi\n"
+			+ "}\n" + "\\newcommand\\sudokupuzzle[2]{%\n" + "\\begin{center}\n" + "\\begin{tikzpicture}[scale=1]\n"
+			+ "\\begin{scope}\n" + "\\draw (0, 0) grid (9, 9);\n"
+			+ "\\draw[line width=1mm, scale=3] (0, 0) grid (3, 3);\n" + "\\sudokucells{#1}\n"
+			+ "\\node[anchor=center] at (4.5, -0.5) {#2};\n" + "\\end{scope}\n" + "\\end{tikzpicture}\n"
+			+ "\\end{center}\n" + "}\n" + "\\newcommand\\sudokusolution[4]{%\n" + "\\begin{tikzpicture}[scale=0.5]\n"
+			+ "\\begin{scope}[xshift=12cm]\n" + "\\draw (0, 0) grid (9, 9);\n"
+			+ "\\draw[very thick, scale=3] (0, 0) grid (3, 3);\n" + "\\sudokucells{#2}\n"
+			+ "\\node[anchor=center] at (4.5, -0.5) {#4};\n" + "\\begin{scope}[#1, font=\\sffamily\\slshape]\n"
+			+ "\\sudokucells{#3}\n" + "\\end{scope}\n" + "\\end{scope}\n" + "\\end{tikzpicture}%\n" + "}\n";
+
 	/**
 	 * Begin a LaTeX document.
 	 */
@@ -181,6 +215,17 @@ public final class LaTeXConverter {
 		return "\\author{" + author + "}\n";
 	}
 
+	/**
+	 * Include a file (on a new page).
+	 * 
+	 * @param file
+	 *            File name without .tex.
+	 * @return LaTeX code to include the file.
+	 */
+	public static final String include(final String file) {
+		return "\\include{" + file + "}\n";
+	}
+
 	/**
 	 * Add a title.
 	 * 
@@ -222,6 +267,25 @@ public final class LaTeXConverter {
 		return result;
 	}
 
+	/**
+	 * Define \sudokudigit, which typesets the digits of the compact cell lists
+	 * (see MACROS).
+	 * 
+	 * @param tokens
+	 *            LaTeX token of every digit (tokens[0] for empty cells).
+	 * @return LaTeX code of the definition.
+	 */
+	public static final String digitCommand(final String... tokens) {
+		final StringBuilder result = new StringBuilder("\\newcommand\\sudokudigit[1]{\\ifcase#1\\relax");
+		for (int digit = 0; digit < tokens.length; ++digit) {
+			if (digit > 0) {
+				result.append("\\or");
+			}
+			result.append(tokens[digit]);
+		}
+		return result.append("\\fi}\n").toString();
+	}
+
 	/**
 	 * Function to create filled Sudoku grids.
 	 * 
@@ -232,28 +296,7 @@ public final class LaTeXConverter {
 	 * @return Code for PDF creation.
 	 */
 	public static final String sudokuGrid(final String[][] grid, final int index) {
-		return "\\begin{center}\n" + "\\begin{tikzpicture}[scale=1]\n" + "\\begin{scope}\n"
-				+ "\\draw (0, 0) grid (9, 9);\n" + "\\draw[line width=1mm, scale=3] (0, 0) grid (3, 3);\n"
-				+ "\\setcounter{row}{1}\n" + "\\setrow {" + grid[0][0] + "}{" + grid[0][1] + "}{" + grid[0][2] + "}  {"
-				+ grid[0][3] + "}{" + grid[0][4] + "}{" + grid[0][5] + "}  {" + grid[0][6] + "}{" + grid[0][7] + "}{"
-				+ grid[0][8] + "}\n" + "\\setrow {" + grid[1][0] + "}{" + grid[1][1] + "}{" + grid[1][2] + "}  {"
-				+ grid[1][3] + "}{" + grid[1][4] + "}{" + grid[1][5] + "}  {" + grid[1][6] + "}{" + grid[1][7] + "}{"
-				+ grid[1][8] + "}\n" + "\\setrow {" + grid[2][0] + "}{" + grid[2][1] + "}{" + grid[2][2] + "}  {"
-				+ grid[2][3] + "}{" + grid[2][4] + "}{" + grid[2][5] + "}  {" + grid[2][6] + "}{" + grid[2][7] + "}{"
-				+ grid[2][8] + "}\n" + "\n" + "\\setrow {" + grid[3][0] + "}{" + grid[3][1] + "}{" + grid[3][2] + "}  {"
-				+ grid[3][3] + "}{" + grid[3][4] + "}{" + grid[3][5] + "}  {" + grid[3][6] + "}{" + grid[3][7] + "}{"
-				+ grid[3][8] + "}\n" + "\\setrow {" + grid[4][0] + "}{" + grid[4][1] + "}{" + grid[4][2] + "}  {"
-				+ grid[4][3] + "}{" + grid[4][4] + "}{" + grid[4][5] + "}  {" + grid[4][6] + "}{" + grid[4][7] + "}{"
-				+ grid[4][8] + "}\n" + "\\setrow {" + grid[5][0] + "}{" + grid[5][1] + "}{" + grid[5][2] + "}  {"
-				+ grid[5][3] + "}{" + grid[5][4] + "}{" + grid[5][5] + "}  {" + grid[5][6] + "}{" + grid[5][7] + "}{"
-				+ grid[5][8] + "}\n" + "\n" + "\\setrow {" + grid[6][0] + "}{" + grid[6][1] + "}{" + grid[6][2] + "}  {"
-				+ grid[6][3] + "}{" + grid[6][4] + "}{" + grid[6][5] + "}  {" + grid[6][6] + "}{" + grid[6][7] + "}{"
-				+ grid[6][8] + "}\n" + "\\setrow {" + grid[7][0] + "}{" + grid[7][1] + "}{" + grid[7][2] + "}  {"
-				+ grid[7][3] + "}{" + grid[7][4] + "}{" + grid[7][5] + "}  {" + grid[7][6] + "}{" + grid[7][7] + "}{"
-				+ grid[7][8] + "}\n" + "\\setrow {" + grid[8][0] + "}{" + grid[8][1] + "}{" + grid[8][2] + "}  {"
-				+ grid[8][3] + "}{" + grid[8][4] + "}{" + grid[8][5] + "}  {" + grid[8][6] + "}{" + grid[8][7] + "}{"
-				+ grid[8][8] + "}\n" + "\n" + "\\node[anchor=center] at (4.5, -0.5) {" + convertNumberToJapanese(index)
-				+ "};\n" + "\\end{scope}\n" + "\\end{tikzpicture}\n" + "\\end{center}\n";
+		return render(GridTemplate.PUZZLE, grid, null, index);
 	}
 
 	/**
@@ -269,52 +312,32 @@ public final class LaTeXConverter {
 	 */
 	public static final String sudokuSolution(final String[][] unsolved, final String[][] solved, final String color,
 			final int index) {
-		return "\\begin{tikzpicture}[scale=0.5]\n" + "\\begin{scope}[xshift=12cm]\n" + "\\draw (0, 0) grid (9, 9);\n"
-				+ "\\draw[very thick, scale=3] (0, 0) grid (3, 3);\n" + "\\setcounter{row}{1}\n" + "\\setrow {"
-				+ unsolved[0][0] + "}{" + unsolved[0][1] + "}{" + unsolved[0][2] + "}  {" + unsolved[0][3] + "}{"
-				+ unsolved[0][4] + "}{" + unsolved[0][5] + "}  {" + unsolved[0][6] + "}{" + unsolved[0][7] + "}{"
-				+ unsolved[0][8] + "}\n" + "\\setrow {" + unsolved[1][0] + "}{" + unsolved[1][1] + "}{" + unsolved[1][2]
-				+ "}  {" + unsolved[1][3] + "}{" + unsolved[1][4] + "}{" + unsolved[1][5] + "}  {" + unsolved[1][6]
-				+ "}{" + unsolved[1][7] + "}{" + unsolved[1][8] + "}\n" + "\\setrow {" + unsolved[2][0] + "}{"
-				+ unsolved[2][1] + "}{" + unsolved[2][2] + "}  {" + unsolved[2][3] + "}{" + unsolved[2][4] + "}{"
-				+ unsolved[2][5] + "}  {" + unsolved[2][6] + "}{" + unsolved[2][7] + "}{" + unsolved[2][8] + "}\n"
-				+ "\n" + "\\setrow {" + unsolved[3][0] + "}{" + unsolved[3][1] + "}{" + unsolved[3][2] + "}  {"
-				+ unsolved[3][3] + "}{" + unsolved[3][4] + "}{" + unsolved[3][5] + "}  {" + unsolved[3][6] + "}{"
-				+ unsolved[3][7] + "}{" + unsolved[3][8] + "}\n" + "\\setrow {" + unsolved[4][0] + "}{" + unsolved[4][1]
-				+ "}{" + unsolved[4][2] + "}  {" + unsolved[4][3] + "}{" + unsolved[4][4] + "}{" + unsolved[4][5]
-				+ "}  {" + unsolved[4][6] + "}{" + unsolved[4][7] + "}{" + unsolved[4][8] + "}\n" + "\\setrow {"
-				+ unsolved[5][0] + "}{" + unsolved[5][1] + "}{" + unsolved[5][2] + "}  {" + unsolved[5][3] + "}{"
-				+ unsolved[5][4] + "}{" + unsolved[5][5] + "}  {" + unsolved[5][6] + "}{" + unsolved[5][7] + "}{"
-				+ unsolved[5][8] + "}\n" + "\n" + "\\setrow {" + unsolved[6][0] + "}{" + unsolved[6][1] + "}{"
-				+ unsolved[6][2] + "}  {" + unsolved[6][3] + "}{" + unsolved[6][4] + "}{" + unsolved[6][5] + "}  {"
-				+ unsolved[6][6] + "}{" + unsolved[6][7] + "}{" + unsolved[6][8] + "}\n" + "\\setrow {" + unsolved[7][0]
-				+ "}{" + unsolved[7][1] + "}{" + unsolved[7][2] + "}  {" + unsolved[7][3] + "}{" + unsolved[7][4] + "}{"
-				+ unsolved[7][5] + "}  {" + unsolved[7][6] + "}{" + unsolved[7][7] + "}{" + unsolved[7][8] + "}\n"
-				+ "\\setrow {" + unsolved[8][0] + "}{" + unsolved[8][1] + "}{" + unsolved[8][2] + "}  {"
-				+ unsolved[8][3] + "}{" + unsolved[8][4] + "}{" + unsolved[8][5] + "}  {" + unsolved[8][6] + "}{"
-				+ unsolved[8][7] + "}{" + unsolved[8][8] + "}\n" + "\\node[anchor=center] at (4.5, -0.5) {"
-				+ convertNumberToJapanese(index) + "};\n" + "\\begin{scope}[" + color + ", font=\\sffamily\\slshape]\n"
-				+ "\\setcounter{row}{1}\n" + "\\setrow {" + solved[0][0] + "}{" + solved[0][1] + "}{" + solved[0][2]
-				+ "}  {" + solved[0][3] + "}{" + solved[0][4] + "}{" + solved[0][5] + "}  {" + solved[0][6] + "}{"
-				+ solved[0][7] + "}{" + solved[0][8] + "}\n" + "\\setrow {" + solved[1][0] + "}{" + solved[1][1] + "}{"
-				+ solved[1][2] + "}  {" + solved[1][3] + "}{" + solved[1][4] + "}{" + solved[1][5] + "}  {"
-				+ solved[1][6] + "}{" + solved[1][7] + "}{" + solved[1][8] + "}\n" + "\\setrow {" + solved[2][0] + "}{"
-				+ solved[2][1] + "}{" + solved[2][2] + "}  {" + solved[2][3] + "}{" + solved[2][4] + "}{" + solved[2][5]
-				+ "}  {" + solved[2][6] + "}{" + solved[2][7] + "}{" + solved[2][8] + "}\n" + "\n" + "\\setrow {"
-				+ solved[3][0] + "}{" + solved[3][1] + "}{" + solved[3][2] + "}  {" + solved[3][3] + "}{" + solved[3][4]
-				+ "}{" + solved[3][5] + "}  {" + solved[3][6] + "}{" + solved[3][7] + "}{" + solved[3][8] + "}\n"
-				+ "\\setrow {" + solved[4][0] + "}{" + solved[4][1] + "}{" + solved[4][2] + "}  {" + solved[4][3] + "}{"
-				+ solved[4][4] + "}{" + solved[4][5] + "}  {" + solved[4][6] + "}{" + solved[4][7] + "}{" + solved[4][8]
-				+ "}\n" + "\\setrow {" + solved[5][0] + "}{" + solved[5][1] + "}{" + solved[5][2] + "}  {"
-				+ solved[5][3] + "}{" + solved[5][4] + "}{" + solved[5][5] + "}  {" + solved[5][6] + "}{" + solved[5][7]
-				+ "}{" + solved[5][8] + "}\n" + "\n" + "\\setrow {" + solved[6][0] + "}{" + solved[6][1] + "}{"
-				+ solved[6][2] + "}  {" + solved[6][3] + "}{" + solved[6][4] + "}{" + solved[6][5] + "}  {"
-				+ solved[6][6] + "}{" + solved[6][7] + "}{" + solved[6][8] + "}\n" + "\\setrow {" + solved[7][0] + "}{"
-				+ solved[7][1] + "}{" + solved[7][2] + "}  {" + solved[7][3] + "}{" + solved[7][4] + "}{" + solved[7][5]
-				+ "}  {" + solved[7][6] + "}{" + solved[7][7] + "}{" + solved[7][8] + "}\n" + "\\setrow {"
-				+ solved[8][0] + "}{" + solved[8][1] + "}{" + solved[8][2] + "}  {" + solved[8][3] + "}{" + solved[8][4]
-				+ "}{" + solved[8][5] + "}  {" + solved[8][6] + "}{" + solved[8][7] + "}{" + solved[8][8] + "}\n"
-				+ "\\end{scope}\n" + "\\end{scope}\n" + "\\end{tikzpicture}";
+		return render(GridTemplate.solution(color), unsolved, solved, index);
+	}
+
+	/**
+	 * Render grid tokens with a template.
+	 * 
+	 * @param template
+	 *            Template.
+	 * @param first
+	 *            Tokens of the puzzle.
+	 * @param second
+	 *            Tokens of the solution (null for puzzles).
+	 * @param index
+	 *            Number of the puzzle.
+	 * @return Code for PDF creation.
+	 */
+	private static final String render(final GridTemplate template, final String[][] first, final String[][] second,
+			final int index) {
+		final StringBuilder result = new StringBuilder(template.expectedLength());
+		try {
+			template.render(result, first, second, index);
+		} catch (final IOException e) {
+			// A StringBuilder does not throw.
+			throw new UncheckedIOException(e);
+		}
+		return result.toString();
 	}
 
 	/**
@@ -325,36 +348,79 @@ public final class LaTeXConverter {
 	 * @return Japanese translation of the given number.
 	 */
 	public static final String convertNumberToJapanese(final int toConvert) {
-		String translation = "";
-		int ones = toConvert % 10;
-		int tens = (toConvert / 10) % 10;
-		int hundreds = (toConvert / 100) % 10;
-		int thousands = (toConvert / 1000) % 10;
-
-		if (thousands > 1) {
-			translation += (J_NUMBER_COMMANDS.get(thousands) + J_NUMBER_COMMANDS.get(1000));
-		} else {
-			if (thousands == 1) {
-				translation += J_NUMBER_COMMANDS.get(1000);
-			}
+		final StringBuilder translation = new StringBuilder();
+		try {
+			appendJapaneseNumber(translation, toConvert);
+		} catch (final IOException e) {
+			// A StringBuilder does not throw.
+			throw new UncheckedIOException(e);
 		}
-		if (hundreds > 1) {
-			translation += (J_NUMBER_COMMANDS.get(hundreds) + J_NUMBER_COMMANDS.get(100));
-		} else {
-			if (hundreds == 1) {
-				translation += J_NUMBER_COMMANDS.get(100);
-			}
+		return translation.toString();
+	}
+
+	/**
+	 * Look up Kanji commands.
+	 * 
+	 * @param numbers
+	 *            Keys of J_NUMBER_COMMANDS.
+	 * @return Their commands.
+	 */
+	private static final String[] commands(final int... numbers) {
+		final String[] commands = new String[numbers.length];
+		for (int i = 0; i < numbers.length; ++i) {
+			commands[i] = J_NUMBER_COMMANDS.get(numbers[i]);
+		}
+		return commands;
+	}
+
+	/**
+	 * Append a number (below 10000) as Kanji commands.
+	 * 
+	 * @param out
+	 *            Target.
+	 * @param number
+	 *            Number to translate.
+	 * @throws IOException
+	 *             If out throws.
+	 */
+	public static final void appendJapaneseNumber(final Appendable out, final int number) throws IOException {
+		appendJapaneseNumber(out, number, J_DIGIT_COMMANDS, J_PLACE_COMMANDS);
+	}
+
+	/**
+	 * Append a number in Japanese place-value notation: digit and place for
+	 * every place, no digit before a single ten, hundred or thousand (e.g.
+	 * 1210 = thousand, two, hundred, ten). Places without a text (10000 and
+	 * above for three places) are left out.
+	 * 
+	 * @param out
+	 *            Target.
+	 * @param number
+	 *            Number to translate.
+	 * @param digits
+	 *            Text of the digits 1 to 9 (index = digit).
+	 * @param places
+	 *            Text of the places 10, 100, 1000, ... (index i = 10^(i+1)).
+	 * @throws IOException
+	 *             If out throws.
+	 */
+	public static final void appendJapaneseNumber(final Appendable out, final int number, final String[] digits,
+			final String[] places) throws IOException {
+		int unit = 1;
+		for (int place = 0; place < places.length; ++place) {
+			unit *= 10;
 		}
-		if (tens > 1) {
-			translation += (J_NUMBER_COMMANDS.get(tens) + J_NUMBER_COMMANDS.get(10));
-		} else {
-			if (tens == 1) {
-				translation += J_NUMBER_COMMANDS.get(10);
+		for (int place = places.length - 1; place >= 0; --place, unit /= 10) {
+			final int digit = (number / unit) % 10;
+			if (digit > 1) {
+				out.append(digits[digit]);
+			}
+			if (digit > 0) {
+				out.append(places[place]);
 			}
 		}
-		if (ones > 0) {
-			translation += J_NUMBER_COMMANDS.get(ones);
+		if (number % 10 > 0) {
+			out.append(digits[number % 10]);
 		}
-		return translation;
 	}
 }
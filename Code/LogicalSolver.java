@@ -0,0 +1,676 @@
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Step-based solver applying human solving techniques (ranked from easy to
+ * hard) to grade Sudoku puzzles. The candidates of every cell are kept up to
+ * date incrementally: placing a value removes it from the peers, every other
+ * technique only eliminates candidates. Each step applies the easiest
+ * technique that makes progress, so the hardest technique used tells how
+ * difficult the puzzle really is.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class LogicalSolver {
+	/**
+	 * Side length and number of cells.
+	 */
+	private final int size, cellCount;
+
+	/**
+	 * All units (rows, then columns, then regions, then extra units) as lists
+	 * of cells.
+	 */
+	private final int[][] units;
+
+	/**
+	 * Peers of every cell (cells sharing a unit with it).
+	 */
+	private final int[][] peers;
+
+	/**
+	 * Region (box) of every cell.
+	 */
+	private final int[] regionOf;
+
+	/**
+	 * Current values (0 = empty).
+	 */
+	private final int[] values;
+
+	/**
+	 * Candidates of every cell (bit v - 1 = value v, 0 for filled cells).
+	 */
+	private final int[] candidates;
+
+	/**
+	 * Scratch buffer: places of each value within a unit or line.
+	 */
+	private final int[] where;
+
+	/**
+	 * Number of empty cells.
+	 */
+	private int empty;
+
+	/**
+	 * Set as soon as a contradiction is found.
+	 */
+	private boolean broken;
+
+	/**
+	 * Hardest technique used so far (null = none).
+	 */
+	private Technique hardest;
+
+	/**
+	 * Custom Ctor for a 9x9 solver.
+	 */
+	public LogicalSolver() {
+		this(3);
+	}
+
+	/**
+	 * Custom Ctor for a solver of nxn boxes.
+	 *
+	 * @param boxSize
+	 *            Box size n.
+	 */
+	public LogicalSolver(final int boxSize) {
+		this(Topology.standard(boxSize));
+	}
+
+	/**
+	 * Custom Ctor for a solver of a board variant (locked candidates use the
+	 * regions, the other techniques all units).
+	 *
+	 * @param topology
+	 *            Units of the board.
+	 */
+	public LogicalSolver(final Topology topology) {
+		size = topology.size();
+		cellCount = topology.cellCount();
+		units = new int[topology.unitCount()][];
+		for (int unit = 0; unit < units.length; ++unit) {
+			units[unit] = topology.unit(unit);
+		}
+		peers = new int[cellCount][];
+		regionOf = new int[cellCount];
+		for (int cell = 0; cell < cellCount; ++cell) {
+			peers[cell] = topology.peers(cell);
+			regionOf[cell] = topology.region(cell);
+		}
+		values = new int[cellCount];
+		candidates = new int[cellCount];
+		where = new int[size];
+	}
+
+	/**
+	 * Grade a puzzle: solve it with logic only and report the hardest technique
+	 * that was needed.
+	 *
+	 * @param puzzle
+	 *            Sudoku puzzle (puzzle[row][col], 0 = empty). Not modified.
+	 * @return Hardest technique needed (GUESSING if logic alone gets stuck).
+	 */
+	public final Technique grade(final int[][] puzzle) {
+		load(puzzle);
+		while (step() != null) {
+			// Keep going.
+		}
+		return isSolved() ? (hardest == null ? Technique.NAKED_SINGLE : hardest) : Technique.GUESSING;
+	}
+
+	/**
+	 * Filter for puzzle streams (e.g. SudokuGenerator.boards) accepting the
+	 * puzzles whose grade lies in [minimum, maximum]. The filter grades with
+	 * one solver per thread and box size, so it may be used by parallel
+	 * streams.
+	 *
+	 * @param minimum
+	 *            Easiest accepted grade.
+	 * @param maximum
+	 *            Hardest accepted grade.
+	 * @return Filter.
+	 */
+	public static final Predicate<Board> graded(final Technique minimum, final Technique maximum) {
+		final ThreadLocal<LogicalSolver[]> solvers = ThreadLocal
+				.withInitial(() -> new LogicalSolver[BitmaskEngine.MAX_BOX_SIZE + 1]);
+		return board -> {
+			final LogicalSolver[] own = solvers.get();
+			if (own[board.boxSize()] == null) {
+				own[board.boxSize()] = new LogicalSolver(board.boxSize());
+			}
+			final Technique grade = own[board.boxSize()].grade(board.toGrid());
+			return grade.compareTo(minimum) >= 0 && grade.compareTo(maximum) <= 0;
+		};
+	}
+
+	/**
+	 * Load a puzzle.
+	 *
+	 * @param puzzle
+	 *            Sudoku puzzle (puzzle[row][col], 0 = empty).
+	 */
+	public final void load(final int[][] puzzle) {
+		Arrays.fill(values, 0);
+		Arrays.fill(candidates, (1 << size) - 1);
+		empty = cellCount;
+		broken = false;
+		hardest = null;
+		for (int cell = 0; cell < cellCount; ++cell) {
+			final int val = puzzle[cell / size][cell % size];
+			if (val != 0) {
+				if ((candidates[cell] & (1 << (val - 1))) == 0) {
+					broken = true;
+				}
+				place(cell, val);
+			}
+		}
+	}
+
+	/**
+	 * Apply the easiest technique that makes progress.
+	 *
+	 * @return Technique applied (null if none applies or the puzzle is solved).
+	 */
+	public final Technique step() {
+		if (broken || empty == 0) {
+			return null;
+		}
+		for (final Technique technique : Technique.values()) {
+			if (apply(technique)) {
+				if (broken) {
+					return null;
+				}
+				if (hardest == null || technique.compareTo(hardest) > 0) {
+					hardest = technique;
+				}
+				return technique;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Is the puzzle completely solved?
+	 *
+	 * @return true, if no empty cell is left.
+	 */
+	public final boolean isSolved() {
+		return empty == 0 && !broken;
+	}
+
+	/**
+	 * Hardest technique used since loading.
+	 *
+	 * @return Technique (null if none was needed yet).
+	 */
+	public final Technique hardest() {
+		return hardest;
+	}
+
+	/**
+	 * Value of a cell.
+	 *
+	 * @param row
+	 *            Row.
+	 * @param col
+	 *            Column.
+	 * @return Value (0 = empty).
+	 */
+	public final int value(final int row, final int col) {
+		return values[row * size + col];
+	}
+
+	/**
+	 * Apply one technique once.
+	 *
+	 * @param technique
+	 *            Technique to apply.
+	 * @return true, if it made progress.
+	 */
+	private final boolean apply(final Technique technique) {
+		switch (technique) {
+		case NAKED_SINGLE:
+			return nakedSingle();
+		case HIDDEN_SINGLE:
+			return hiddenSingle();
+		case LOCKED_CANDIDATES:
+			return lockedCandidates();
+		case NAKED_PAIR:
+			return nakedSubset(2);
+		case HIDDEN_PAIR:
+			return hiddenSubset(2);
+		case NAKED_TRIPLE:
+			return nakedSubset(3);
+		case HIDDEN_TRIPLE:
+			return hiddenSubset(3);
+		case X_WING:
+			return xWing();
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Place a value and remove it from the candidates of all peers.
+	 *
+	 * @param cell
+	 *            Cell index.
+	 * @param val
+	 *            Value.
+	 */
+	private final void place(final int cell, final int val) {
+		final int bit = 1 << (val - 1);
+		values[cell] = val;
+		candidates[cell] = 0;
+		--empty;
+		for (final int peer : peers[cell]) {
+			if (values[peer] == val) {
+				broken = true;
+			}
+			candidates[peer] &= ~bit;
+		}
+	}
+
+	/**
+	 * Remove candidates from a cell.
+	 *
+	 * @param cell
+	 *            Cell index.
+	 * @param mask
+	 *            Candidates to remove.
+	 * @return true, if something was removed.
+	 */
+	private final boolean eliminate(final int cell, final int mask) {
+		if ((candidates[cell] & mask) == 0) {
+			return false;
+		}
+		candidates[cell] &= ~mask;
+		if (candidates[cell] == 0) {
+			broken = true;
+		}
+		return true;
+	}
+
+	/**
+	 * Naked single: a cell with only one candidate left.
+	 *
+	 * @return true, if a value was placed.
+	 */
+	private final boolean nakedSingle() {
+		for (int cell = 0; cell < cellCount; ++cell) {
+			final int cand = candidates[cell];
+			if (values[cell] == 0) {
+				if (cand == 0) {
+					broken = true;
+					return true;
+				}
+				if ((cand & (cand - 1)) == 0) {
+					place(cell, Integer.numberOfTrailingZeros(cand) + 1);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Hidden single: a value with only one place left in a unit.
+	 *
+	 * @return true, if a value was placed.
+	 */
+	private final boolean hiddenSingle() {
+		for (final int[] unit : units) {
+			int once = 0, twice = 0;
+			for (final int cell : unit) {
+				twice |= once & candidates[cell];
+				once |= candidates[cell];
+			}
+			final int single = once & ~twice;
+			if (single != 0) {
+				final int bit = single & -single;
+				for (final int cell : unit) {
+					if ((candidates[cell] & bit) != 0) {
+						place(cell, Integer.numberOfTrailingZeros(bit) + 1);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Locked candidates: if a value's places in a box all lie in one line, it
+	 * can be removed from the rest of that line (pointing), and if its places in
+	 * a line all lie in one box, it can be removed from the rest of that box
+	 * (claiming).
+	 *
+	 * @return true, if a candidate was removed.
+	 */
+	private final boolean lockedCandidates() {
+		for (int bit = 1; bit < (1 << size); bit <<= 1) {
+			// Pointing.
+			for (int b = 0; b < size; ++b) {
+				int row = -1, col = -1;
+				boolean sameRow = true, sameCol = true, any = false;
+				for (final int cell : units[2 * size + b]) {
+					if ((candidates[cell] & bit) != 0) {
+						sameRow &= row < 0 || row == cell / size;
+						sameCol &= col < 0 || col == cell % size;
+						row = cell / size;
+						col = cell % size;
+						any = true;
+					}
+				}
+				if (any && (sameRow && eliminateOutside(units[row], b, bit)
+						|| sameCol && eliminateOutside(units[size + col], b, bit))) {
+					return true;
+				}
+			}
+			// Claiming.
+			for (int line = 0; line < 2 * size; ++line) {
+				int b = -1;
+				boolean sameBox = true;
+				for (final int cell : units[line]) {
+					if ((candidates[cell] & bit) != 0) {
+						final int cellBox = boxOf(cell);
+						sameBox &= b < 0 || b == cellBox;
+						b = cellBox;
+					}
+				}
+				if (b >= 0 && sameBox && eliminateOutsideLine(units[2 * size + b], line, bit)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Remove a value from all cells of a line that are not in the given box.
+	 *
+	 * @param line
+	 *            Row or column.
+	 * @param b
+	 *            Box to keep.
+	 * @param bit
+	 *            Value to remove.
+	 * @return true, if something was removed.
+	 */
+	private final boolean eliminateOutside(final int[] line, final int b, final int bit) {
+		boolean changed = false;
+		for (final int cell : line) {
+			if (boxOf(cell) != b) {
+				changed |= eliminate(cell, bit);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Remove a value from all cells of a box that are not on the given line.
+	 *
+	 * @param boxCells
+	 *            Cells of the box.
+	 * @param line
+	 *            Unit index of the line to keep.
+	 * @param bit
+	 *            Value to remove.
+	 * @return true, if something was removed.
+	 */
+	private final boolean eliminateOutsideLine(final int[] boxCells, final int line, final int bit) {
+		boolean changed = false;
+		for (final int cell : boxCells) {
+			if (!contains(units[line], cell)) {
+				changed |= eliminate(cell, bit);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Naked pair/triple: k cells of a unit sharing only k candidates; these
+	 * values can be removed from the other cells of the unit.
+	 *
+	 * @param k
+	 *            Size of the subset (2 or 3).
+	 * @return true, if a candidate was removed.
+	 */
+	private final boolean nakedSubset(final int k) {
+		for (final int[] unit : units) {
+			for (int i = 0; i < size; ++i) {
+				final int ci = candidates[unit[i]];
+				if (ci == 0 || Integer.bitCount(ci) > k) {
+					continue;
+				}
+				for (int j = i + 1; j < size; ++j) {
+					final int cj = candidates[unit[j]];
+					if (cj == 0 || Integer.bitCount(ci | cj) > k) {
+						continue;
+					}
+					if (k == 2) {
+						if (Integer.bitCount(ci | cj) == 2
+								&& eliminateExcept(unit, ci | cj, (1 << i) | (1 << j))) {
+							return true;
+						}
+						continue;
+					}
+					for (int l = j + 1; l < size; ++l) {
+						final int cl = candidates[unit[l]];
+						if (cl != 0 && Integer.bitCount(ci | cj | cl) == k
+								&& eliminateExcept(unit, ci | cj | cl, (1 << i) | (1 << j) | (1 << l))) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Remove values from all cells of a unit except the given ones.
+	 *
+	 * @param unit
+	 *            Unit.
+	 * @param mask
+	 *            Values to remove.
+	 * @param keep
+	 *            Positions (within the unit) to skip.
+	 * @return true, if something was removed.
+	 */
+	private final boolean eliminateExcept(final int[] unit, final int mask, final int keep) {
+		boolean changed = false;
+		for (int i = 0; i < size; ++i) {
+			if ((keep & (1 << i)) == 0) {
+				changed |= eliminate(unit[i], mask);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Hidden pair/triple: k values of a unit restricted to the same k cells; all
+	 * other candidates can be removed from these cells.
+	 *
+	 * @param k
+	 *            Size of the subset (2 or 3).
+	 * @return true, if a candidate was removed.
+	 */
+	private final boolean hiddenSubset(final int k) {
+		for (final int[] unit : units) {
+			for (int v = 0; v < size; ++v) {
+				int positions = 0;
+				for (int i = 0; i < size; ++i) {
+					if ((candidates[unit[i]] & (1 << v)) != 0) {
+						positions |= 1 << i;
+					}
+				}
+				where[v] = positions;
+			}
+			for (int a = 0; a < size; ++a) {
+				if (where[a] == 0 || Integer.bitCount(where[a]) > k) {
+					continue;
+				}
+				for (int b = a + 1; b < size; ++b) {
+					if (where[b] == 0 || Integer.bitCount(where[a] | where[b]) > k) {
+						continue;
+					}
+					if (k == 2) {
+						if (restrict(unit, where[a] | where[b], (1 << a) | (1 << b))) {
+							return true;
+						}
+						continue;
+					}
+					for (int c = b + 1; c < size; ++c) {
+						if (where[c] != 0 && Integer.bitCount(where[a] | where[b] | where[c]) == k
+								&& restrict(unit, where[a] | where[b] | where[c], (1 << a) | (1 << b) | (1 << c))) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Restrict cells of a unit to the given values.
+	 *
+	 * @param unit
+	 *            Unit.
+	 * @param positions
+	 *            Positions (within the unit) to restrict.
+	 * @param keep
+	 *            Values to keep.
+	 * @return true, if something was removed.
+	 */
+	private final boolean restrict(final int[] unit, final int positions, final int keep) {
+		if (Integer.bitCount(positions) != Integer.bitCount(keep)) {
+			return false;
+		}
+		boolean changed = false;
+		for (int i = 0; i < size; ++i) {
+			if ((positions & (1 << i)) != 0) {
+				changed |= eliminate(unit[i], ~keep & ((1 << size) - 1));
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * X-wing: a value that has exactly two places in each of two rows, in the
+	 * same two columns, can be removed from the rest of these columns (and the
+	 * same with rows and columns swapped).
+	 *
+	 * @return true, if a candidate was removed.
+	 */
+	private final boolean xWing() {
+		for (int bit = 1; bit < (1 << size); bit <<= 1) {
+			for (int orientation = 0; orientation < 2; ++orientation) {
+				final int base = orientation * size;
+				for (int line = 0; line < size; ++line) {
+					int positions = 0;
+					for (int i = 0; i < size; ++i) {
+						if ((candidates[units[base + line][i]] & bit) != 0) {
+							positions |= 1 << i;
+						}
+					}
+					where[line] = positions;
+				}
+				for (int a = 0; a < size; ++a) {
+					if (Integer.bitCount(where[a]) != 2) {
+						continue;
+					}
+					for (int b = a + 1; b < size; ++b) {
+						if (where[b] != where[a]) {
+							continue;
+						}
+						// The crossing lines are columns for rows and vice versa.
+						boolean changed = false;
+						final int cross = (1 - orientation) * size;
+						for (int p = where[a]; p != 0; p &= p - 1) {
+							final int[] crossing = units[cross + Integer.numberOfTrailingZeros(p)];
+							for (int i = 0; i < size; ++i) {
+								if (i != a && i != b) {
+									changed |= eliminate(crossing[i], bit);
+								}
+							}
+						}
+						if (changed) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Box of a cell.
+	 *
+	 * @param cell
+	 *            Cell index.
+	 * @return Box index.
+	 */
+	private final int boxOf(final int cell) {
+		return regionOf[cell];
+	}
+
+	/**
+	 * Does a unit contain a cell?
+	 *
+	 * @param unit
+	 *            Unit.
+	 * @param cell
+	 *            Cell index.
+	 * @return true, if so.
+	 */
+	private static final boolean contains(final int[] unit, final int cell) {
+		for (final int member : unit) {
+			if (member == cell) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Solving techniques, ordered from easy to hard.
+	 *
+	 * @author André Dalwigk
+	 * @version 1.0
+	 *
+	 */
+	public enum Technique {
+		NAKED_SINGLE, HIDDEN_SINGLE, LOCKED_CANDIDATES, NAKED_PAIR, HIDDEN_PAIR, NAKED_TRIPLE, HIDDEN_TRIPLE, X_WING,
+		/**
+		 * Logic alone gets stuck, the puzzle needs trial and error.
+		 */
+		GUESSING;
+
+		/**
+		 * Difficulty of a puzzle whose hardest technique is this one.
+		 *
+		 * @return Difficulty.
+		 */
+		public final SudokuGenerator.Difficulty difficulty() {
+			switch (this) {
+			case NAKED_SINGLE:
+			case HIDDEN_SINGLE:
+				return SudokuGenerator.Difficulty.EASY;
+			case LOCKED_CANDIDATES:
+			case NAKED_PAIR:
+			case HIDDEN_PAIR:
+				return SudokuGenerator.Difficulty.MEDIUM;
+			default:
+				return SudokuGenerator.Difficulty.HARD;
+			}
+		}
+	}
+}
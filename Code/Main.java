@@ -1,4 +1,6 @@
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Main program.
@@ -12,14 +14,153 @@ public final class Main {
 	 * Main function.
 	 * 
 	 * @param arguments
-	 * @throws FileNotFoundException
+	 *            Optional seed (the same seed gives the same book), optionally
+	 *            followed by --compact (grids as macro calls, see
+	 *            Document.useMacros) and --chapters=N (chapter files of N
+	 *            puzzles, see Document.useChapters), --pdf or --pdf=FILE (also
+	 *            write sudoku-direct.pdf or FILE, see Document.printPdf) and
+	 *            --font=FILE (TrueType font with the Kanji, needed by --pdf).
+	 * @throws IOException
+	 *             ioe.
 	 */
-	public static final void main(String... arguments) throws FileNotFoundException {
-		final Document document = new Document("sudoku", "tex", Document.Language.JP);
-		document.createSudokuPuzzles(12);
+	public static final void main(String... arguments) throws IOException {
+		if (arguments.length == 0) {
+			createBook("sudoku", 12);
+			return;
+		}
+		// Check all options before anything is written.
+		final long seed = Long.parseLong(arguments[0]);
+		boolean compact = false;
+		int chapters = 0;
+		Path pdf = null;
+		Path font = null;
+		for (int i = 1; i < arguments.length; i++) {
+			if ("--compact".equals(arguments[i])) {
+				compact = true;
+			} else if (arguments[i].startsWith("--chapters=")) {
+				chapters = Document.checkChapterSize(
+						Integer.parseInt(arguments[i].substring("--chapters=".length())));
+			} else if ("--pdf".equals(arguments[i])) {
+				// Not sudoku.pdf, which pdflatex makes of sudoku.tex.
+				pdf = Paths.get("sudoku-direct.pdf");
+			} else if (arguments[i].startsWith("--pdf=")) {
+				pdf = Paths.get(arguments[i].substring("--pdf=".length()));
+			} else if (arguments[i].startsWith("--font=")) {
+				font = Paths.get(arguments[i].substring("--font=".length()));
+			} else {
+				throw new IllegalArgumentException("Unknown option: " + arguments[i]);
+			}
+		}
+		if (pdf != null && font == null) {
+			// Without a font the PDF would silently get Arabic numerals.
+			throw new IllegalArgumentException("The Japanese PDF needs --font=FILE");
+		}
+		final Document document = new Document("sudoku", "tex", Document.Language.JP, new SudokuSolver(),
+				new SudokuGenerator(3, seed));
+		document.useIndex(new CanonicalIndex());
+		if (compact) {
+			document.useMacros();
+		}
+		if (chapters > 0) {
+			document.useChapters(chapters);
+		}
+		writeBook(12, document);
+		if (pdf != null) {
+			document.printPdf(pdf, font);
+		}
+	}
+
+	/**
+	 * Create the complete book (title, preface, puzzles and solutions).
+	 * 
+	 * @param name
+	 *            Name of the .tex file.
+	 * @param amount
+	 *            Number of Sudoku puzzles.
+	 */
+	public static final void createBook(final String name, final int amount) {
+		final Document document = new Document(name, "tex", Document.Language.JP);
+		document.useIndex(new CanonicalIndex());
+		writeBook(amount, document);
+	}
+
+	/**
+	 * Create the complete book from a fixed seed (byte for byte the same book
+	 * for the same seed).
+	 * 
+	 * @param name
+	 *            Name of the .tex file.
+	 * @param amount
+	 *            Number of Sudoku puzzles.
+	 * @param seed
+	 *            Seed of the puzzle generator.
+	 */
+	public static final void createBook(final String name, final int amount, final long seed) {
+		createBook(name, amount, seed, false);
+	}
+
+	/**
+	 * Create the complete book from a fixed seed, optionally in the compact
+	 * macro form (see Document.useMacros).
+	 * 
+	 * @param name
+	 *            Name of the .tex file.
+	 * @param amount
+	 *            Number of Sudoku puzzles.
+	 * @param seed
+	 *            Seed of the puzzle generator.
+	 * @param compact
+	 *            Write the grids as macro calls?
+	 */
+	public static final void createBook(final String name, final int amount, final long seed,
+			final boolean compact) {
+		final Document document = new Document(name, "tex", Document.Language.JP, new SudokuSolver(),
+				new SudokuGenerator(3, seed));
+		document.useIndex(new CanonicalIndex());
+		if (compact) {
+			document.useMacros();
+		}
+		writeBook(amount, document);
+	}
+
+	/**
+	 * Create the complete book with puzzles from a puzzle bank (see
+	 * PuzzleBank.fillInBackground). Puzzles missing in the bank are generated.
+	 * 
+	 * @param name
+	 *            Name of the .tex file.
+	 * @param amount
+	 *            Number of Sudoku puzzles.
+	 * @param bankFile
+	 *            Puzzle bank.
+	 * @throws IOException
+	 *             ioe.
+	 */
+	public static final void createBook(final String name, final int amount, final Path bankFile)
+			throws IOException {
+		final Document document = new Document(name, "tex", Document.Language.JP);
+		// Bank puzzles enter the index as well, so no generated puzzle repeats
+		// one of them.
+		document.useIndex(new CanonicalIndex());
+		try (PuzzleBank bank = PuzzleBank.open(bankFile)) {
+			writeBook(amount - document.drawSudokuPuzzles(bank, SudokuGenerator.Difficulty.HARD, amount), document);
+		}
+	}
+
+	/**
+	 * Fill and print a document.
+	 * 
+	 * @param amount
+	 *            Number of Sudoku puzzles to generate.
+	 * @param document
+	 *            Document (empty or with puzzles taken from a bank; with an
+	 *            index of its puzzles, see Document.useIndex).
+	 */
+	private static final void writeBook(final int amount, final Document document) {
+		document.createSudokuPuzzles(amount, true);
 		document.add(LaTeXConverter.IMPORTS);
 		document.add(LaTeXConverter.J_CHARS);
-		document.add(LaTeXConverter.COMMANDS);
+		document.addCommands();
 		document.addTitle("Sudoku auf Japanisch");
 		document.addAuthor("F. André Dalwigk");
 		document.beginDocument();
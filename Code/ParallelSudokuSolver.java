@@ -0,0 +1,236 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fork-join Sudoku solver for large boards (16x16, 25x25). The search tree is
+ * split at the shallow branch points (most constrained cell after propagation)
+ * into tasks; below the split depth every task runs the sequential
+ * BitmaskEngine of its worker thread. The first solution found cancels all
+ * other tasks.
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class ParallelSudokuSolver implements Solver {
+	/**
+	 * Default number of branch levels that are split into tasks.
+	 */
+	public static final int DEFAULT_SPLIT_DEPTH = 4;
+
+	/**
+	 * Pool running the tasks.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Number of branch levels that are split into tasks.
+	 */
+	private final int splitDepth;
+
+	/**
+	 * One engine per worker thread.
+	 */
+	private final ThreadLocal<BitmaskEngine> engines;
+
+	/**
+	 * Custom Ctor for a parallel solver using all cores.
+	 * 
+	 * @param boxSize
+	 *            Box size n (the board has n^2 x n^2 cells).
+	 */
+	public ParallelSudokuSolver(final int boxSize) {
+		this(boxSize, ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH);
+	}
+
+	/**
+	 * Custom Ctor for a parallel solver.
+	 * 
+	 * @param boxSize
+	 *            Box size n (the board has n^2 x n^2 cells).
+	 * @param pool
+	 *            Pool running the tasks.
+	 * @param splitDepth
+	 *            Number of branch levels that are split into tasks.
+	 */
+	public ParallelSudokuSolver(final int boxSize, final ForkJoinPool pool, final int splitDepth) {
+		// Fail early on unsupported sizes.
+		new BitmaskEngine(boxSize);
+		this.pool = pool;
+		this.splitDepth = splitDepth;
+		engines = ThreadLocal.withInitial(() -> new BitmaskEngine(boxSize));
+	}
+
+	@Override
+	public final int[][] solve(final int[][] toSolve) {
+		final Search search = new Search(1);
+		pool.invoke(new SearchTask(search, copy(toSolve), 0));
+		final int[][] solution = search.solution.get();
+		if (solution != null) {
+			for (int row = 0; row < toSolve.length; ++row) {
+				System.arraycopy(solution[row], 0, toSolve[row], 0, toSolve[row].length);
+			}
+		}
+		return toSolve;
+	}
+
+	@Override
+	public final int countSolutions(final int[][] grid, final int limit) {
+		if (limit <= 0) {
+			return 0;
+		}
+		final Search search = new Search(limit);
+		pool.invoke(new SearchTask(search, copy(grid), 0));
+		return Math.min(search.found.get(), limit);
+	}
+
+	/**
+	 * Deep copy of a grid.
+	 * 
+	 * @param grid
+	 *            Grid to copy.
+	 * @return Copy.
+	 */
+	private static final int[][] copy(final int[][] grid) {
+		final int[][] result = new int[grid.length][];
+		for (int row = 0; row < grid.length; ++row) {
+			result[row] = grid[row].clone();
+		}
+		return result;
+	}
+
+	/**
+	 * State shared by all tasks of one search.
+	 */
+	private static final class Search {
+		/**
+		 * Stop after this many solutions.
+		 */
+		private final int limit;
+
+		/**
+		 * Solutions found so far.
+		 */
+		private final AtomicInteger found = new AtomicInteger();
+
+		/**
+		 * Set as soon as the limit is reached.
+		 */
+		private final AtomicBoolean cancel = new AtomicBoolean();
+
+		/**
+		 * First solution found.
+		 */
+		private final AtomicReference<int[][]> solution = new AtomicReference<>();
+
+		/**
+		 * Custom Ctor.
+		 * 
+		 * @param limit
+		 *            Stop after this many solutions.
+		 */
+		private Search(final int limit) {
+			this.limit = limit;
+		}
+
+		/**
+		 * Record solutions of a subtree.
+		 * 
+		 * @param count
+		 *            Number of solutions.
+		 * @param grid
+		 *            One of the solutions (only used for the first one).
+		 */
+		private final void report(final int count, final int[][] grid) {
+			if (count > 0) {
+				solution.compareAndSet(null, grid);
+				if (found.addAndGet(count) >= limit) {
+					cancel.set(true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Task searching the subtree below a partially filled grid.
+	 */
+	private final class SearchTask extends RecursiveAction {
+		/**
+		 * Serial version.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Shared search state.
+		 */
+		private final Search search;
+
+		/**
+		 * Grid of this subtree (owned by the task).
+		 */
+		private final int[][] grid;
+
+		/**
+		 * Branch level of this subtree.
+		 */
+		private final int depth;
+
+		/**
+		 * Custom Ctor.
+		 * 
+		 * @param search
+		 *            Shared search state.
+		 * @param grid
+		 *            Grid of this subtree.
+		 * @param depth
+		 *            Branch level of this subtree.
+		 */
+		private SearchTask(final Search search, final int[][] grid, final int depth) {
+			this.search = search;
+			this.grid = grid;
+			this.depth = depth;
+		}
+
+		@Override
+		protected final void compute() {
+			if (search.cancel.get()) {
+				return;
+			}
+			final BitmaskEngine engine = engines.get();
+			if (depth >= splitDepth) {
+				engine.setCancel(search.cancel);
+				try {
+					if (search.limit == 1) {
+						search.report(engine.solve(grid) ? 1 : 0, grid);
+					} else {
+						search.report(engine.countSolutions(grid, search.limit), null);
+					}
+				} finally {
+					engine.setCancel(null);
+				}
+				return;
+			}
+
+			if (!engine.reduce(grid)) {
+				return;
+			}
+			final int cell = engine.branchCell();
+			if (cell < 0) {
+				search.report(1, grid);
+				return;
+			}
+			final int size = grid.length;
+			final List<SearchTask> tasks = new ArrayList<>();
+			for (int cand = engine.candidates(cell); cand != 0; cand &= cand - 1) {
+				final int[][] child = copy(grid);
+				child[cell / size][cell % size] = Integer.numberOfTrailingZeros(cand) + 1;
+				tasks.add(new SearchTask(search, child, depth + 1));
+			}
+			invokeAll(tasks);
+		}
+	}
+}
@@ -0,0 +1,563 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes the puzzle and solution pages of a book straight to PDF, without
+ * LaTeX, in the layout of Document: 2 puzzles per page (between rules, with
+ * their number below) and 12 solutions per page in 3 columns (puzzle digits
+ * black, solution digits orange). The grid lines are two form XObjects (one
+ * per grid size) that are drawn once and referenced by every grid; the
+ * digits are text. Pages are written as they are added, so memory use does
+ * not grow with the book; the page tree, the font and the cross-reference
+ * table follow on close.
+ * <p>
+ * With a TrueType font (e.g. a CJK font for the Kanji), the subset of glyphs
+ * actually used is embedded (Type0/Identity-H). Without a font, Helvetica is
+ * used (not embedded), which has no Kanji, so all numbers are written with
+ * Arabic digits. The title and preface pages stay LaTeX-only.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class PdfWriter implements AutoCloseable {
+	/**
+	 * A4 in points.
+	 */
+	private static final float PAGE_WIDTH = 595.28f, PAGE_HEIGHT = 841.89f;
+
+	/**
+	 * One centimeter in points (TikZ unit).
+	 */
+	private static final float CM = 72 / 2.54f;
+
+	/**
+	 * Cell size of puzzles (scale=1) and solutions (scale=0.5).
+	 */
+	private static final float PUZZLE_CELL = CM, SOLUTION_CELL = CM / 2;
+
+	/**
+	 * Puzzles per page, solution columns and solutions per page.
+	 */
+	private static final int PUZZLES_PER_PAGE = 2, COLUMNS = 3, SOLUTIONS_PER_PAGE = 12;
+
+	/**
+	 * Top of the first puzzle's rule and distance between the puzzles.
+	 */
+	private static final float PUZZLE_TOP = 780, PUZZLE_PITCH = 312;
+
+	/**
+	 * Top of the first solution row, gaps between the columns and the rows.
+	 */
+	private static final float SOLUTION_TOP = 790, COLUMN_GAP = 30, ROW_GAP = 45;
+
+	/**
+	 * Size of all text.
+	 */
+	private static final float FONT_SIZE = 12;
+
+	/**
+	 * Helvetica: width and vertical extent of the digits (1/1000 em).
+	 */
+	private static final int HELVETICA_DIGIT_WIDTH = 556, HELVETICA_DIGIT_MIN = -19, HELVETICA_DIGIT_MAX = 703;
+
+	/**
+	 * Kanji of the digits 1 to 9 (index = digit) and of 10, 100 and 1000 (see
+	 * LaTeXConverter.J_CHARS).
+	 */
+	private static final String[] KANJI_DIGITS = { "", "一", "二", "三", "四", "五", "六", "七", "八", "九" },
+			KANJI_PLACES = { "十", "百", "千" };
+
+	/**
+	 * Objects with fixed numbers.
+	 */
+	private static final int CATALOG = 1, PAGES = 2, RESOURCES = 3, FONT = 4, PUZZLE_GRID = 5, SOLUTION_GRID = 6;
+
+	/**
+	 * Target file.
+	 */
+	private final OutputStream out;
+
+	/**
+	 * Bytes written so far.
+	 */
+	private long position;
+
+	/**
+	 * File offset of every object (index = object number, 0 unused).
+	 */
+	private final List<Long> offsets = new ArrayList<>();
+
+	/**
+	 * Object numbers of the pages.
+	 */
+	private final List<Integer> pages = new ArrayList<>();
+
+	/**
+	 * Embedded font (null = Helvetica).
+	 */
+	private final TrueTypeFont font;
+
+	/**
+	 * Write Kanji (needs a font)?
+	 */
+	private final boolean kanji;
+
+	/**
+	 * Glyphs used so far (embedded font only).
+	 */
+	private final BitSet usedGlyphs = new BitSet();
+
+	/**
+	 * Character of every used glyph, for the ToUnicode map (index = glyph,
+	 * embedded font only).
+	 */
+	private final int[] glyphChars;
+
+	/**
+	 * Content stream of the current page.
+	 */
+	private final StringBuilder content = new StringBuilder(1 << 14);
+
+	/**
+	 * Custom Ctor: start a PDF file.
+	 *
+	 * @param file
+	 *            Target file.
+	 * @param lang
+	 *            Language of the digits and numbers.
+	 * @param fontFile
+	 *            TrueType font with the glyphs of the language (null =
+	 *            Helvetica with Arabic digits).
+	 * @throws IOException
+	 *             If the file cannot be written or the font not be read.
+	 */
+	public PdfWriter(final Path file, final Document.Language lang, final Path fontFile) throws IOException {
+		font = fontFile == null ? null : TrueTypeFont.load(fontFile);
+		kanji = font != null && lang == Document.Language.JP;
+		if (font != null) {
+			final String needed = kanji ? String.join("", KANJI_DIGITS) + String.join("", KANJI_PLACES) : "0123456789";
+			for (int i = 0; i < needed.length(); ++i) {
+				if (font.glyph(needed.charAt(i)) == 0) {
+					throw new IllegalArgumentException("Font " + fontFile + " has no glyph for " + needed.charAt(i));
+				}
+			}
+			glyphChars = new int[1 << 16];
+		} else {
+			glyphChars = null;
+		}
+		out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+		write("%PDF-1.4\n%âãÏÓ\n");
+		for (int number = 0; number <= SOLUTION_GRID; ++number) {
+			offsets.add(-1L);
+		}
+		writeObject(CATALOG, "<< /Type /Catalog /Pages " + PAGES + " 0 R >>");
+		writeObject(RESOURCES, "<< /ProcSet [/PDF /Text] /Font << /F1 " + FONT + " 0 R >> /XObject << /PuzzleGrid "
+				+ PUZZLE_GRID + " 0 R /SolutionGrid " + SOLUTION_GRID + " 0 R >> >>");
+		writeGrid(PUZZLE_GRID, 0.4f / PUZZLE_CELL, 2.845f / PUZZLE_CELL);
+		writeGrid(SOLUTION_GRID, 0.4f / SOLUTION_CELL, 1.2f / SOLUTION_CELL);
+	}
+
+	/**
+	 * Add the puzzle pages.
+	 *
+	 * @param puzzles
+	 *            Puzzles (9x9), numbered from 1.
+	 * @throws IOException
+	 *             ioe.
+	 */
+	public final void addPuzzlePages(final List<Board> puzzles) throws IOException {
+		final float grid = 9 * PUZZLE_CELL;
+		final float left = (PAGE_WIDTH - grid) / 2;
+		for (int counter = 0; counter < puzzles.size(); counter++) {
+			final int slot = counter % PUZZLES_PER_PAGE;
+			final float top = PUZZLE_TOP - slot * PUZZLE_PITCH;
+			rule(left, top);
+			final float bottom = top - 20 - grid;
+			drawGrid("PuzzleGrid", left, bottom, PUZZLE_CELL, puzzles.get(counter), null);
+			text(puzzleNumber(counter + 1), left + grid / 2, bottom - PUZZLE_CELL / 2, false);
+			if (slot == PUZZLES_PER_PAGE - 1) {
+				rule(left, top - PUZZLE_PITCH);
+			}
+			if (slot == PUZZLES_PER_PAGE - 1 || counter == puzzles.size() - 1) {
+				endPage();
+			}
+		}
+	}
+
+	/**
+	 * Add the solution pages.
+	 *
+	 * @param puzzles
+	 *            Puzzles (9x9), numbered from 1.
+	 * @param solutions
+	 *            Solution of every puzzle (delta!).
+	 * @throws IOException
+	 *             ioe.
+	 */
+	public final void addSolutionPages(final List<Board> puzzles, final List<Board> solutions) throws IOException {
+		final float grid = 9 * SOLUTION_CELL;
+		final float left = (PAGE_WIDTH - COLUMNS * grid - (COLUMNS - 1) * COLUMN_GAP) / 2;
+		for (int counter = 0; counter < puzzles.size(); counter++) {
+			final int slot = counter % SOLUTIONS_PER_PAGE;
+			final float x = left + (slot % COLUMNS) * (grid + COLUMN_GAP);
+			final float bottom = SOLUTION_TOP - grid - (slot / COLUMNS) * (grid + ROW_GAP);
+			drawGrid("SolutionGrid", x, bottom, SOLUTION_CELL, puzzles.get(counter), solutions.get(counter));
+			text(puzzleNumber(counter + 1), x + grid / 2, bottom - SOLUTION_CELL / 2, false);
+			if (slot == SOLUTIONS_PER_PAGE - 1 || counter == puzzles.size() - 1) {
+				endPage();
+			}
+		}
+	}
+
+	/**
+	 * Finish the file: page tree, font and cross-reference table.
+	 *
+	 * @throws IOException
+	 *             ioe.
+	 */
+	@Override
+	public final void close() throws IOException {
+		final StringBuilder kids = new StringBuilder();
+		for (final int page : pages) {
+			kids.append(page).append(" 0 R ");
+		}
+		writeObject(PAGES, "<< /Type /Pages /Kids [" + kids + "] /Count " + pages.size() + " >>");
+		if (font == null) {
+			writeObject(FONT, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>");
+		} else {
+			writeFont();
+		}
+		final long xref = position;
+		final StringBuilder table = new StringBuilder("xref\n0 " + offsets.size() + "\n0000000000 65535 f \n");
+		for (int number = 1; number < offsets.size(); ++number) {
+			table.append(String.format(Locale.ROOT, "%010d 00000 n \n", offsets.get(number)));
+		}
+		table.append("trailer\n<< /Size " + offsets.size() + " /Root " + CATALOG + " 0 R >>\nstartxref\n" + xref
+				+ "\n%%EOF\n");
+		write(table.toString());
+		out.close();
+	}
+
+	/**
+	 * Draw a grid and its digits.
+	 *
+	 * @param form
+	 *            Name of the grid XObject.
+	 * @param x
+	 *            Left edge.
+	 * @param y
+	 *            Bottom edge.
+	 * @param cell
+	 *            Cell size.
+	 * @param puzzle
+	 *            Puzzle (black digits).
+	 * @param solution
+	 *            Solution delta (orange slanted digits) or null.
+	 */
+	private final void drawGrid(final String form, final float x, final float y, final float cell, final Board puzzle,
+			final Board solution) {
+		if (puzzle.size() != 9 || (solution != null && solution.size() != 9)) {
+			throw new IllegalArgumentException("Only 9x9 grids are supported");
+		}
+		content.append("q ");
+		appendNumber(cell).append(" 0 0 ");
+		appendNumber(cell).append(' ');
+		appendNumber(x).append(' ');
+		appendNumber(y).append(" cm /").append(form).append(" Do Q\n");
+		for (int row = 0; row < 9; ++row) {
+			for (int col = 0; col < 9; ++col) {
+				final float cx = x + (col + 0.5f) * cell;
+				final float cy = y + (8.5f - row) * cell;
+				if (puzzle.get(row, col) != 0) {
+					text(digit(puzzle.get(row, col)), cx, cy, false);
+				} else if (solution != null && solution.get(row, col) != 0) {
+					text(digit(solution.get(row, col)), cx, cy, true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Draw a horizontal rule over the width of a puzzle (\hrule).
+	 *
+	 * @param left
+	 *            Left edge of the puzzle.
+	 * @param y
+	 *            Height.
+	 */
+	private final void rule(final float left, final float y) {
+		content.append("0.4 w ");
+		appendNumber(left - 2 * CM).append(' ');
+		appendNumber(y).append(" m ");
+		appendNumber(PAGE_WIDTH - left + 2 * CM).append(' ');
+		appendNumber(y).append(" l S\n");
+	}
+
+	/**
+	 * Draw text centered at a point.
+	 *
+	 * @param text
+	 *            Digits or Kanji.
+	 * @param cx
+	 *            Horizontal center.
+	 * @param cy
+	 *            Vertical center.
+	 * @param solution
+	 *            Solution digit (orange, slanted)?
+	 */
+	private final void text(final String text, final float cx, final float cy, final boolean solution) {
+		int width = 0;
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		final StringBuilder shown = new StringBuilder(4 * text.length() + 2);
+		if (font == null) {
+			width = HELVETICA_DIGIT_WIDTH * text.length();
+			min = HELVETICA_DIGIT_MIN;
+			max = HELVETICA_DIGIT_MAX;
+			shown.append('(').append(text).append(')');
+		} else {
+			shown.append('<');
+			for (int i = 0; i < text.length(); ++i) {
+				final int glyph = font.glyph(text.charAt(i));
+				usedGlyphs.set(glyph);
+				glyphChars[glyph] = text.charAt(i);
+				width += font.advance(glyph);
+				final int[] extent = font.verticalExtent(glyph);
+				min = Math.min(min, extent[0]);
+				max = Math.max(max, extent[1]);
+				shown.append(String.format(Locale.ROOT, "%04X", glyph));
+			}
+			shown.append('>');
+			final float scale = 1000f / font.unitsPerEm();
+			width = Math.round(width * scale);
+			min = Math.round(min * scale);
+			max = Math.round(max * scale);
+		}
+		final float size = FONT_SIZE / 1000;
+		content.append(solution ? "BT 1 0.5 0 rg /F1 " : "BT 0 g /F1 ");
+		appendNumber(FONT_SIZE).append(solution ? " Tf 1 0 0.21 1 " : " Tf 1 0 0 1 ");
+		appendNumber(cx - width * size / 2).append(' ');
+		appendNumber(cy - (min + max) * size / 2).append(" Tm ").append(shown).append(" Tj ET\n");
+	}
+
+	/**
+	 * Text of a digit.
+	 *
+	 * @param value
+	 *            Digit 1 to 9.
+	 * @return Kanji or Arabic digit.
+	 */
+	private final String digit(final int value) {
+		return kanji ? KANJI_DIGITS[value] : Integer.toString(value);
+	}
+
+	/**
+	 * Text of a puzzle number (as LaTeXConverter.convertNumberToJapanese).
+	 *
+	 * @param value
+	 *            Number.
+	 * @return Kanji or Arabic number.
+	 */
+	private final String puzzleNumber(final int value) {
+		if (!kanji) {
+			return Integer.toString(value);
+		}
+		final StringBuilder result = new StringBuilder();
+		try {
+			LaTeXConverter.appendJapaneseNumber(result, value, KANJI_DIGITS, KANJI_PLACES);
+		} catch (final IOException e) {
+			// A StringBuilder does not throw.
+			throw new UncheckedIOException(e);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Append a number to the content stream (two decimals at most).
+	 *
+	 * @param value
+	 *            Number.
+	 * @return The content stream.
+	 */
+	private final StringBuilder appendNumber(final float value) {
+		final long hundredths = Math.round(value * 100.0);
+		if (hundredths < 0) {
+			content.append('-');
+		}
+		final long abs = Math.abs(hundredths);
+		content.append(abs / 100);
+		if (abs % 100 != 0) {
+			content.append('.').append(abs % 100 / 10);
+			if (abs % 10 != 0) {
+				content.append(abs % 10);
+			}
+		}
+		return content;
+	}
+
+	/**
+	 * Write the current page (content stream and page object).
+	 *
+	 * @throws IOException
+	 *             ioe.
+	 */
+	private final void endPage() throws IOException {
+		final int stream = reserve();
+		writeStream(stream, "", content.toString().getBytes(StandardCharsets.ISO_8859_1));
+		content.setLength(0);
+		final int page = reserve();
+		writeObject(page, "<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + PAGE_WIDTH + " " + PAGE_HEIGHT
+				+ "] /Resources " + RESOURCES + " 0 R /Contents " + stream + " 0 R >>");
+		pages.add(page);
+	}
+
+	/**
+	 * Write a grid XObject (9 x 9 units, one unit per cell).
+	 *
+	 * @param number
+	 *            Object number.
+	 * @param thin
+	 *            Width of the cell lines (units).
+	 * @param thick
+	 *            Width of the box lines (units).
+	 * @throws IOException
+	 *             ioe.
+	 */
+	private final void writeGrid(final int number, final float thin, final float thick) throws IOException {
+		final StringBuilder grid = new StringBuilder();
+		grid.append(String.format(Locale.ROOT, "%.4f w 0 J\n", thin));
+		for (int line = 0; line <= 9; ++line) {
+			grid.append(line).append(" 0 m ").append(line).append(" 9 l 0 ").append(line).append(" m 9 ")
+					.append(line).append(" l\n");
+		}
+		grid.append("S\n").append(String.format(Locale.ROOT, "%.4f w 2 J\n", thick));
+		for (int line = 0; line <= 9; line += 3) {
+			grid.append(line).append(" 0 m ").append(line).append(" 9 l 0 ").append(line).append(" m 9 ")
+					.append(line).append(" l\n");
+		}
+		grid.append("S\n");
+		writeStream(number, " /Type /XObject /Subtype /Form /BBox [-1 -1 10 10]",
+				grid.toString().getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Write the embedded font (Type0 with a CIDFontType2 of the used glyphs,
+	 * CID = glyph number).
+	 *
+	 * @throws IOException
+	 *             ioe.
+	 */
+	private final void writeFont() throws IOException {
+		final float scale = 1000f / font.unitsPerEm();
+		final StringBuilder tag = new StringBuilder();
+		for (int hash = usedGlyphs.hashCode(), i = 0; i < 6; ++i, hash /= 26) {
+			tag.append((char) ('A' + Math.floorMod(hash, 26)));
+		}
+		final String name = tag + "+" + font.name();
+		final int descendant = reserve();
+		final int descriptor = reserve();
+		final int fontFile = reserve();
+		final int toUnicode = reserve();
+		writeObject(FONT, "<< /Type /Font /Subtype /Type0 /BaseFont /" + name
+				+ " /Encoding /Identity-H /DescendantFonts [" + descendant + " 0 R] /ToUnicode " + toUnicode
+				+ " 0 R >>");
+		final StringBuilder widths = new StringBuilder();
+		final StringBuilder unicode = new StringBuilder();
+		for (int glyph = usedGlyphs.nextSetBit(0); glyph >= 0; glyph = usedGlyphs.nextSetBit(glyph + 1)) {
+			widths.append(glyph).append(" [").append(Math.round(font.advance(glyph) * scale)).append("] ");
+			unicode.append(String.format(Locale.ROOT, "<%04X> <%04X>\n", glyph, glyphChars[glyph]));
+		}
+		writeObject(descendant, "<< /Type /Font /Subtype /CIDFontType2 /BaseFont /" + name
+				+ " /CIDSystemInfo << /Registry (Adobe) /Ordering (Identity) /Supplement 0 >> /FontDescriptor "
+				+ descriptor + " 0 R /DW 1000 /W [" + widths + "] /CIDToGIDMap /Identity >>");
+		final int[] bbox = font.bbox();
+		writeObject(descriptor, "<< /Type /FontDescriptor /FontName /" + name + " /Flags 4 /FontBBox ["
+				+ Math.round(bbox[0] * scale) + " " + Math.round(bbox[1] * scale) + " " + Math.round(bbox[2] * scale)
+				+ " " + Math.round(bbox[3] * scale) + "] /ItalicAngle 0 /Ascent " + Math.round(font.ascent() * scale)
+				+ " /Descent " + Math.round(font.descent() * scale) + " /CapHeight "
+				+ Math.round(font.ascent() * scale) + " /StemV 80 /FontFile2 " + fontFile + " 0 R >>");
+		final byte[] subset = font.subset(usedGlyphs);
+		writeStream(fontFile, " /Length1 " + subset.length, subset);
+		writeStream(toUnicode, "", ("/CIDInit /ProcSet findresource begin\n12 dict begin\nbegincmap\n"
+				+ "/CIDSystemInfo << /Registry (Adobe) /Ordering (UCS) /Supplement 0 >> def\n"
+				+ "/CMapName /Adobe-Identity-UCS def\n/CMapType 2 def\n1 begincodespacerange\n<0000> <FFFF>\n"
+				+ "endcodespacerange\n" + usedGlyphs.cardinality() + " beginbfchar\n" + unicode + "endbfchar\n"
+				+ "endcmap\nCMapName currentdict /CMap defineresource pop\nend\nend\n")
+						.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Reserve an object number.
+	 *
+	 * @return Object number.
+	 */
+	private final int reserve() {
+		offsets.add(-1L);
+		return offsets.size() - 1;
+	}
+
+	/**
+	 * Write an object.
+	 *
+	 * @param number
+	 *            Object number.
+	 * @param body
+	 *            Object (ASCII).
+	 * @throws IOException
+	 *             ioe.
+	 */
+	private final void writeObject(final int number, final String body) throws IOException {
+		offsets.set(number, position);
+		write(number + " 0 obj\n" + body + "\nendobj\n");
+	}
+
+	/**
+	 * Write a compressed stream object.
+	 *
+	 * @param number
+	 *            Object number.
+	 * @param entries
+	 *            Further dictionary entries (with leading space).
+	 * @param data
+	 *            Uncompressed data.
+	 * @throws IOException
+	 *             ioe.
+	 */
+	private final void writeStream(final int number, final String entries, final byte[] data) throws IOException {
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+		try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+			deflater.write(data);
+		}
+		offsets.set(number, position);
+		write(number + " 0 obj\n<< /Length " + compressed.size() + " /Filter /FlateDecode" + entries
+				+ " >>\nstream\n");
+		compressed.writeTo(out);
+		position += compressed.size();
+		write("\nendstream\nendobj\n");
+	}
+
+	/**
+	 * Write ASCII (or Latin-1) text.
+	 *
+	 * @param text
+	 *            Text.
+	 * @throws IOException
+	 *             ioe.
+	 */
+	private final void write(final String text) throws IOException {
+		final byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+		out.write(bytes);
+		position += bytes.length;
+	}
+}
@@ -0,0 +1,646 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Persistent bank of graded puzzles with their solutions. The file is a
+ * header followed by fixed-size records (grade, clue count, puzzle and
+ * solution; two cells per byte up to 9x9, one cell per byte above), read
+ * through a read-only memory mapping. Records are indexed by grade and clue
+ * count when they become visible, so drawing puzzles costs an index lookup
+ * and two unpacks each.
+ * <p>
+ * Puzzles are added by one appender at a time (file lock between processes,
+ * a semaphore per bank file within the JVM). It writes a record
+ * completely before it raises the record count in the header, and readers
+ * never look past that count, so readers may stay open while the bank grows
+ * and pick up new records with refresh. A bank is read by one thread at a
+ * time.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class PuzzleBank implements AutoCloseable {
+	/**
+	 * Header of the file format.
+	 */
+	private static final int MAGIC = 0x53444b42;
+
+	/**
+	 * Length of the header: magic, box size, record count.
+	 */
+	private static final int HEADER = 16;
+
+	/**
+	 * Position of the record count in the header.
+	 */
+	private static final int COUNT_POSITION = 8;
+
+	/**
+	 * Bytes in front of the packed grids: grade, clue count (2 bytes).
+	 */
+	private static final int RECORD_HEADER = 3;
+
+	/**
+	 * Grades (hardest technique needed).
+	 */
+	private static final LogicalSolver.Technique[] TECHNIQUES = LogicalSolver.Technique.values();
+
+	/**
+	 * Turn of the appenders of every bank file in this JVM (a file lock is
+	 * held by the whole JVM, so it cannot make two appenders wait for each
+	 * other).
+	 */
+	private static final Map<Path, Semaphore> APPENDERS = new ConcurrentHashMap<>();
+
+	/**
+	 * The bank file.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Box size n.
+	 */
+	private final int box;
+
+	/**
+	 * Number of cells n^4.
+	 */
+	private final int cellCount;
+
+	/**
+	 * Bytes per record.
+	 */
+	private final int recordSize;
+
+	/**
+	 * Mapping of the header and all records known so far.
+	 */
+	private MappedByteBuffer map;
+
+	/**
+	 * Visible records.
+	 */
+	private int count;
+
+	/**
+	 * records[grade][clues] = record numbers in file order (the first
+	 * counts[grade][clues] entries are used).
+	 */
+	private final int[][][] records;
+
+	/**
+	 * Used length of each list in records.
+	 */
+	private final int[][] counts;
+
+	/**
+	 * Custom Ctor for a reader of an existing bank.
+	 *
+	 * @param channel
+	 *            Bank file (readable).
+	 * @throws IOException
+	 *             ioe (also if the file is no bank).
+	 */
+	private PuzzleBank(final FileChannel channel) throws IOException {
+		this.channel = channel;
+		final ByteBuffer header = readHeader(channel);
+		box = header.getInt(4);
+		cellCount = box * box * box * box;
+		recordSize = recordSize(box);
+		records = new int[TECHNIQUES.length][cellCount + 1][];
+		counts = new int[TECHNIQUES.length][cellCount + 1];
+		refresh();
+	}
+
+	/**
+	 * Open a bank for reading.
+	 *
+	 * @param file
+	 *            Bank file.
+	 * @return Bank with all records written so far.
+	 * @throws IOException
+	 *             ioe (also if the file is no bank).
+	 */
+	public static final PuzzleBank open(final Path file) throws IOException {
+		final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new PuzzleBank(channel);
+		} catch (final IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Open a bank for appending, creating it if it does not exist. Blocks while
+	 * another appender (of this or another process) holds the bank.
+	 *
+	 * @param file
+	 *            Bank file.
+	 * @param boxSize
+	 *            Box size n of the puzzles (must match an existing bank).
+	 * @return Appender.
+	 * @throws IOException
+	 *             ioe (also if the file is no bank of this box size, or
+	 *             InterruptedIOException if interrupted while waiting).
+	 */
+	public static final Appender append(final Path file, final int boxSize) throws IOException {
+		final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		final Semaphore turn;
+		try {
+			turn = APPENDERS.computeIfAbsent(file.toRealPath(), key -> new Semaphore(1));
+			turn.acquire();
+		} catch (final InterruptedException e) {
+			channel.close();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for " + file);
+		} catch (final IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		try {
+			return new Appender(channel, boxSize, turn);
+		} catch (final IOException | RuntimeException e) {
+			channel.close();
+			turn.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Start a daemon thread adding puzzles to a bank: puzzles of the EASY,
+	 * MEDIUM and HARD range and minimal puzzles in turn, continuing the
+	 * generator's sequence at the current size of the bank, each graded with
+	 * the LogicalSolver and stored with its solution. The thread stops after
+	 * amount puzzles, when it is interrupted (cancel(true)) or when writing
+	 * fails; a failure is rethrown by get().
+	 *
+	 * @param file
+	 *            Bank file.
+	 * @param generator
+	 *            Source of the puzzles.
+	 * @param amount
+	 *            Number of puzzles to add.
+	 * @return Number of puzzles added (get() waits for the bank).
+	 */
+	public static final Future<Long> fillInBackground(final Path file, final SudokuGenerator generator,
+			final int amount) {
+		final FutureTask<Long> task = new FutureTask<>(() -> {
+			final LogicalSolver grader = new LogicalSolver(generator.boxSize());
+			final SudokuSolver solver = new SudokuSolver(generator.boxSize());
+			long added = 0;
+			try (Appender appender = append(file, generator.boxSize())) {
+				final long first = appender.size();
+				for (long index = first; index < first + amount
+						&& !Thread.currentThread().isInterrupted(); ++index) {
+					final Board puzzle = index % 4 == 3 ? generator.createMinimalBoard(index)
+							: generator.createBoard(SudokuGenerator.Difficulty.values()[(int) (index % 4)], index);
+					appender.add(puzzle, solver.solve(puzzle), grader.grade(puzzle.toGrid()));
+					++added;
+				}
+			} catch (final ClosedByInterruptException | InterruptedIOException e) {
+				// Interrupted while writing or waiting: the bank ends with the
+				// last complete record.
+			}
+			return added;
+		});
+		final Thread filler = new Thread(task, "puzzle-bank-filler");
+		filler.setDaemon(true);
+		filler.start();
+		return task;
+	}
+
+	/**
+	 * Box size of the puzzles.
+	 *
+	 * @return Box size n.
+	 */
+	public final int boxSize() {
+		return box;
+	}
+
+	/**
+	 * Number of visible records.
+	 *
+	 * @return Records read so far (see refresh).
+	 */
+	public final int size() {
+		return count;
+	}
+
+	/**
+	 * Make records appended since the last call visible.
+	 *
+	 * @return Number of visible records.
+	 * @throws IOException
+	 *             ioe.
+	 */
+	public final int refresh() throws IOException {
+		final ByteBuffer header = readHeader(channel);
+		final int committed = Math.toIntExact(header.getLong(COUNT_POSITION));
+		if (committed <= count) {
+			return count;
+		}
+		final long length = HEADER + (long) committed * recordSize;
+		if (map == null || map.capacity() < length) {
+			map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		}
+		for (int record = count; record < committed; ++record) {
+			final int position = position(record);
+			final int grade = map.get(position);
+			final int clues = map.getShort(position + 1);
+			int[] list = records[grade][clues];
+			if (list == null) {
+				list = records[grade][clues] = new int[16];
+			} else if (list.length == counts[grade][clues]) {
+				list = records[grade][clues] = Arrays.copyOf(list, list.length * 2);
+			}
+			list[counts[grade][clues]++] = record;
+		}
+		count = committed;
+		return count;
+	}
+
+	/**
+	 * Number of visible puzzles of a grade and clue range.
+	 *
+	 * @param minimum
+	 *            Easiest grade.
+	 * @param maximum
+	 *            Hardest grade.
+	 * @param minClues
+	 *            Fewest clues.
+	 * @param maxClues
+	 *            Most clues.
+	 * @return Matching puzzles.
+	 */
+	public final int count(final LogicalSolver.Technique minimum, final LogicalSolver.Technique maximum,
+			final int minClues, final int maxClues) {
+		int matching = 0;
+		for (int grade = minimum.ordinal(); grade <= maximum.ordinal(); ++grade) {
+			for (int clues = Math.max(minClues, 0); clues <= Math.min(maxClues, cellCount); ++clues) {
+				matching += counts[grade][clues];
+			}
+		}
+		return matching;
+	}
+
+	/**
+	 * The first puzzles (in file order) of a grade and clue range.
+	 *
+	 * @param minimum
+	 *            Easiest grade.
+	 * @param maximum
+	 *            Hardest grade.
+	 * @param minClues
+	 *            Fewest clues.
+	 * @param maxClues
+	 *            Most clues.
+	 * @param amount
+	 *            Number of puzzles wanted.
+	 * @return Record numbers (fewer than amount if the bank has fewer).
+	 */
+	public final int[] find(final LogicalSolver.Technique minimum, final LogicalSolver.Technique maximum,
+			final int minClues, final int maxClues, final int amount) {
+		final int lists = (maximum.ordinal() - minimum.ordinal() + 1) * (cellCount + 1);
+		final int[][] sources = new int[lists][];
+		final int[] lengths = new int[lists];
+		int used = 0;
+		for (int grade = minimum.ordinal(); grade <= maximum.ordinal(); ++grade) {
+			for (int clues = Math.max(minClues, 0); clues <= Math.min(maxClues, cellCount); ++clues) {
+				if (counts[grade][clues] > 0) {
+					sources[used] = records[grade][clues];
+					lengths[used++] = counts[grade][clues];
+				}
+			}
+		}
+		// Merge the sorted lists until enough records are found.
+		final int[] cursors = new int[used];
+		final int[] found = new int[Math.min(amount, count(minimum, maximum, minClues, maxClues))];
+		for (int i = 0; i < found.length; ++i) {
+			int next = -1;
+			for (int list = 0; list < used; ++list) {
+				if (cursors[list] < lengths[list]
+						&& (next < 0 || sources[list][cursors[list]] < sources[next][cursors[next]])) {
+					next = list;
+				}
+			}
+			found[i] = sources[next][cursors[next]++];
+		}
+		return found;
+	}
+
+	/**
+	 * Puzzle of a record.
+	 *
+	 * @param record
+	 *            Record number.
+	 * @return Puzzle.
+	 */
+	public final Board puzzle(final int record) {
+		return unpack(position(checked(record)) + RECORD_HEADER);
+	}
+
+	/**
+	 * Solution of a record.
+	 *
+	 * @param record
+	 *            Record number.
+	 * @return Solved grid.
+	 */
+	public final Board solution(final int record) {
+		return unpack(position(checked(record)) + RECORD_HEADER + packedSize(box));
+	}
+
+	/**
+	 * Grade of a record.
+	 *
+	 * @param record
+	 *            Record number.
+	 * @return Hardest technique the puzzle needs.
+	 */
+	public final LogicalSolver.Technique grade(final int record) {
+		return TECHNIQUES[map.get(position(checked(record)))];
+	}
+
+	@Override
+	public final void close() throws IOException {
+		map = null;
+		channel.close();
+	}
+
+	/**
+	 * Check a record number.
+	 *
+	 * @param record
+	 *            Record number.
+	 * @return record.
+	 */
+	private final int checked(final int record) {
+		if (record < 0 || record >= count) {
+			throw new IndexOutOfBoundsException("Record " + record + " of " + count);
+		}
+		return record;
+	}
+
+	/**
+	 * Position of a record in the file.
+	 *
+	 * @param record
+	 *            Record number.
+	 * @return Offset.
+	 */
+	private final int position(final int record) {
+		return Math.toIntExact(HEADER + (long) record * recordSize);
+	}
+
+	/**
+	 * Read a packed grid from the mapping.
+	 *
+	 * @param position
+	 *            Offset of the packed grid.
+	 * @return Board.
+	 */
+	private final Board unpack(final int position) {
+		final byte[] cells = new byte[cellCount];
+		if (box * box < 16) {
+			for (int cell = 0; cell < cellCount; cell += 2) {
+				final int pair = map.get(position + cell / 2);
+				cells[cell] = (byte) (pair & 0x0f);
+				if (cell + 1 < cellCount) {
+					cells[cell + 1] = (byte) ((pair >>> 4) & 0x0f);
+				}
+			}
+		} else {
+			map.get(position, cells);
+		}
+		return new Board(box, cells);
+	}
+
+	/**
+	 * Bytes of a packed grid.
+	 *
+	 * @param boxSize
+	 *            Box size n.
+	 * @return Size.
+	 */
+	private static final int packedSize(final int boxSize) {
+		final int cells = boxSize * boxSize * boxSize * boxSize;
+		return boxSize * boxSize < 16 ? (cells + 1) / 2 : cells;
+	}
+
+	/**
+	 * Bytes of a record.
+	 *
+	 * @param boxSize
+	 *            Box size n.
+	 * @return Size.
+	 */
+	private static final int recordSize(final int boxSize) {
+		return RECORD_HEADER + 2 * packedSize(boxSize);
+	}
+
+	/**
+	 * Read and check the header.
+	 *
+	 * @param channel
+	 *            Bank file.
+	 * @return Header.
+	 * @throws IOException
+	 *             ioe (also if the file is no bank).
+	 */
+	private static final ByteBuffer readHeader(final FileChannel channel) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER);
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0) {
+				throw new IOException("Not a puzzle bank (truncated header)");
+			}
+		}
+		if (header.getInt(0) != MAGIC) {
+			throw new IOException("Not a puzzle bank");
+		}
+		return header;
+	}
+
+	/**
+	 * Writer adding records to a bank. Holds the file lock and the
+	 * turn of the bank file until it is closed.
+	 *
+	 * @author André Dalwigk
+	 * @version 1.0
+	 */
+	public static final class Appender implements AutoCloseable {
+		/**
+		 * The bank file.
+		 */
+		private final FileChannel channel;
+
+		/**
+		 * Exclusive lock of the file.
+		 */
+		private final FileLock lock;
+
+		/**
+		 * Turn of this appender among those of the JVM (released on close).
+		 */
+		private final Semaphore turn;
+
+		/**
+		 * Box size n.
+		 */
+		private final int box;
+
+		/**
+		 * Buffer of one record.
+		 */
+		private final ByteBuffer record;
+
+		/**
+		 * Buffer of the record count.
+		 */
+		private final ByteBuffer countBuffer = ByteBuffer.allocate(Long.BYTES);
+
+		/**
+		 * Records in the bank.
+		 */
+		private long count;
+
+		/**
+		 * Custom Ctor for an appender.
+		 *
+		 * @param channel
+		 *            Bank file (readable and writable).
+		 * @param boxSize
+		 *            Box size n.
+		 * @param turn
+		 *            Acquired turn of the bank file.
+		 * @throws IOException
+		 *             ioe (also if the file is no bank of this box size).
+		 */
+		private Appender(final FileChannel channel, final int boxSize, final Semaphore turn) throws IOException {
+			this.channel = channel;
+			this.turn = turn;
+			lock = channel.lock();
+			box = boxSize;
+			record = ByteBuffer.allocate(recordSize(boxSize));
+			if (channel.size() == 0) {
+				final ByteBuffer header = ByteBuffer.allocate(HEADER);
+				header.putInt(MAGIC).putInt(boxSize).putLong(0).flip();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+				channel.force(true);
+			}
+			final ByteBuffer header = readHeader(channel);
+			if (header.getInt(4) != boxSize) {
+				throw new IOException("Bank of box size " + header.getInt(4) + ", not " + boxSize);
+			}
+			count = header.getLong(COUNT_POSITION);
+		}
+
+		/**
+		 * Number of records in the bank.
+		 *
+		 * @return Records.
+		 */
+		public final long size() {
+			return count;
+		}
+
+		/**
+		 * Add a puzzle. Its record is visible to readers once this returns and
+		 * on the storage device before the count that makes it visible (the
+		 * count itself is only written to the device by flush or close).
+		 *
+		 * @param puzzle
+		 *            Puzzle.
+		 * @param solution
+		 *            Its solution.
+		 * @param grade
+		 *            Hardest technique the puzzle needs.
+		 * @throws IOException
+		 *             ioe.
+		 */
+		public final void add(final Board puzzle, final Board solution, final LogicalSolver.Technique grade)
+				throws IOException {
+			if (puzzle.boxSize() != box || solution.boxSize() != box) {
+				throw new IllegalArgumentException("Bank holds puzzles of box size " + box);
+			}
+			record.clear();
+			record.put((byte) grade.ordinal()).putShort((short) puzzle.clues());
+			pack(puzzle);
+			pack(solution);
+			record.flip();
+			final long position = HEADER + count * record.capacity();
+			while (record.hasRemaining()) {
+				channel.write(record, position + record.position());
+			}
+			// The record is complete and stored, now readers may see it.
+			channel.force(false);
+			countBuffer.clear();
+			countBuffer.putLong(0, count + 1);
+			while (countBuffer.hasRemaining()) {
+				channel.write(countBuffer, COUNT_POSITION + countBuffer.position());
+			}
+			++count;
+		}
+
+		/**
+		 * Write everything to the storage device.
+		 *
+		 * @throws IOException
+		 *             ioe.
+		 */
+		public final void flush() throws IOException {
+			channel.force(false);
+		}
+
+		@Override
+		public final void close() throws IOException {
+			try {
+				flush();
+				lock.release();
+			} finally {
+				try {
+					channel.close();
+				} finally {
+					turn.release();
+				}
+			}
+		}
+
+		/**
+		 * Append a packed grid to the record buffer.
+		 *
+		 * @param board
+		 *            Grid.
+		 */
+		private final void pack(final Board board) {
+			final int cells = board.cellCount();
+			if (box * box < 16) {
+				for (int cell = 0; cell < cells; cell += 2) {
+					final int high = cell + 1 < cells ? board.get(cell + 1) : 0;
+					record.put((byte) (board.get(cell) | high << 4));
+				}
+			} else {
+				for (int cell = 0; cell < cells; ++cell) {
+					record.put((byte) board.get(cell));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/**
+ * Scalar BatchPropagator: the boards are processed one after another, in the
+ * same rounds as the SIMD version (all naked singles of a round at once, then
+ * the hidden singles if there were none), so both reach the same boards.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+final class ScalarPropagator implements BatchPropagator {
+	/**
+	 * Side length, number of cells and units.
+	 */
+	private final int size, cellCount, unitCount;
+
+	/**
+	 * Bitmask containing all values.
+	 */
+	private final int all;
+
+	/**
+	 * Cells of every unit (see Topology).
+	 */
+	private final int[] units;
+
+	/**
+	 * Units of every cell (see Topology).
+	 */
+	private final int[] cellUnits;
+
+	/**
+	 * Units per cell in cellUnits.
+	 */
+	private final int degree;
+
+	/**
+	 * Placed value of every cell of the current board (as bit, 0 = empty).
+	 */
+	private final int[] value;
+
+	/**
+	 * Candidates of every cell of the current board.
+	 */
+	private final int[] cand;
+
+	/**
+	 * Used values of every unit of the current board.
+	 */
+	private final int[] used;
+
+	/**
+	 * Has the current board a contradiction?
+	 */
+	private boolean broken;
+
+	/**
+	 * Custom Ctor.
+	 *
+	 * @param topology
+	 *            Units of the boards.
+	 */
+	ScalarPropagator(final Topology topology) {
+		size = topology.size();
+		cellCount = topology.cellCount();
+		unitCount = topology.unitCount();
+		all = (1 << size) - 1;
+		units = topology.units();
+		cellUnits = topology.cellUnits();
+		degree = topology.degree();
+		value = new int[cellCount];
+		cand = new int[cellCount];
+		used = new int[unitCount];
+	}
+
+	@Override
+	public final int lanes() {
+		return 1;
+	}
+
+	@Override
+	public final void candidates(final byte[] boards, final int offset, final int count, final int[] masks) {
+		for (int board = 0; board < count; ++board) {
+			load(boards, offset + board * cellCount);
+			usedPass();
+			candidatePass(false);
+			System.arraycopy(cand, 0, masks, board * cellCount, cellCount);
+		}
+	}
+
+	@Override
+	public final int propagate(final byte[] boards, final int offset, final int count, final Status[] status) {
+		int solved = 0;
+		for (int board = 0; board < count; ++board) {
+			final int start = offset + board * cellCount;
+			load(boards, start);
+			boolean changed = true;
+			while (changed) {
+				usedPass();
+				changed = candidatePass(true) || hiddenPass();
+			}
+			boolean open = false;
+			for (int cell = 0; cell < cellCount; ++cell) {
+				open |= value[cell] == 0;
+				boards[start + cell] = (byte) (value[cell] == 0 ? 0 : Integer.numberOfTrailingZeros(value[cell]) + 1);
+			}
+			status[board] = broken ? Status.BROKEN : open ? Status.OPEN : Status.SOLVED;
+			solved += status[board] == Status.SOLVED ? 1 : 0;
+		}
+		return solved;
+	}
+
+	/**
+	 * Load a board.
+	 *
+	 * @param boards
+	 *            Buffer.
+	 * @param start
+	 *            Index of the board's first cell.
+	 */
+	private final void load(final byte[] boards, final int start) {
+		broken = false;
+		for (int cell = 0; cell < cellCount; ++cell) {
+			final int val = boards[start + cell];
+			if (val < 0 || val > size) {
+				broken = true;
+				value[cell] = 0;
+			} else {
+				value[cell] = val == 0 ? 0 : 1 << (val - 1);
+			}
+		}
+	}
+
+	/**
+	 * Compute the used values of every unit (a value used twice breaks the
+	 * board).
+	 */
+	private final void usedPass() {
+		for (int unit = 0; unit < unitCount; ++unit) {
+			int acc = 0;
+			for (int i = unit * size; i < (unit + 1) * size; ++i) {
+				final int v = value[units[i]];
+				broken |= (acc & v) != 0;
+				acc |= v;
+			}
+			used[unit] = acc;
+		}
+	}
+
+	/**
+	 * Compute the candidates of every cell (an empty cell without candidates
+	 * breaks the board) and optionally place the naked singles.
+	 *
+	 * @param place
+	 *            Place naked singles?
+	 * @return true, if something was placed.
+	 */
+	private final boolean candidatePass(final boolean place) {
+		boolean changed = false;
+		for (int cell = 0; cell < cellCount; ++cell) {
+			int u = 0;
+			for (int k = cell * degree; k < (cell + 1) * degree; ++k) {
+				u |= used[cellUnits[k]];
+			}
+			final int c = value[cell] == 0 ? all & ~u : 0;
+			broken |= value[cell] == 0 && c == 0;
+			cand[cell] = c;
+			if (place && c != 0 && (c & (c - 1)) == 0) {
+				value[cell] = c;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Place the hidden singles of every unit (a value without place breaks the
+	 * board).
+	 *
+	 * @return true, if something was placed.
+	 */
+	private final boolean hiddenPass() {
+		boolean changed = false;
+		for (int unit = 0; unit < unitCount; ++unit) {
+			int once = 0, twice = 0;
+			for (int i = unit * size; i < (unit + 1) * size; ++i) {
+				final int c = cand[units[i]];
+				twice |= once & c;
+				once |= c;
+			}
+			broken |= (once | used[unit]) != all;
+			final int single = once & ~twice;
+			if (single == 0) {
+				continue;
+			}
+			for (int i = unit * size; i < (unit + 1) * size; ++i) {
+				final int cell = units[i];
+				final int hit = cand[cell] & single;
+				if (hit != 0 && value[cell] == 0) {
+					value[cell] = hit & -hit;
+					changed = true;
+				}
+			}
+		}
+		return changed;
+	}
+}
@@ -0,0 +1,53 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one engine call (solve, count or fill). The event's duration
+ * is the latency of the call.
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+@Name("sudoku.Search")
+@Label("Sudoku Search")
+@Category("Sudoku")
+@Description("One solve, count or fill call of the bitmask engine.")
+public final class SearchEvent extends jdk.jfr.Event {
+	/**
+	 * Kind of call.
+	 */
+	@Label("Operation")
+	String operation;
+
+	/**
+	 * Search nodes visited.
+	 */
+	@Label("Nodes")
+	long nodes;
+
+	/**
+	 * Dead ends that forced a backtrack.
+	 */
+	@Label("Backtracks")
+	long backtracks;
+
+	/**
+	 * Values placed by propagation (naked and hidden singles).
+	 */
+	@Label("Propagations")
+	long propagations;
+
+	/**
+	 * Values tried at branch points.
+	 */
+	@Label("Attempts")
+	long attempts;
+
+	/**
+	 * Solutions found.
+	 */
+	@Label("Solutions")
+	int solutions;
+}
@@ -0,0 +1,281 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated counters of all engine calls: nodes visited, backtracks,
+ * propagations, attempts (values tried at branch points, i.e. fill attempts
+ * for FILL calls) and a latency histogram per operation. Recording is off by
+ * default (or switched on with -Dsudoku.stats=true); when it is off, the only
+ * cost per call is one volatile read. Every recorded call is also emitted as
+ * a SearchEvent for JFR.
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class SearchStatistics {
+	/**
+	 * Number of latency buckets (bucket i holds latencies in [2^i, 2^(i+1))
+	 * nanoseconds).
+	 */
+	private static final int BUCKETS = 64;
+
+	/**
+	 * Counter indices.
+	 */
+	private static final int CALLS = 0, NODES = 1, BACKTRACKS = 2, PROPAGATIONS = 3, ATTEMPTS = 4, SOLUTIONS = 5,
+			NANOS = 6, COUNTERS = 7;
+
+	/**
+	 * Is recording switched on?
+	 */
+	private static volatile boolean enabled = Boolean.getBoolean("sudoku.stats");
+
+	/**
+	 * Counters per operation.
+	 */
+	private static final LongAdder[][] COUNTS = new LongAdder[Operation.values().length][COUNTERS];
+
+	/**
+	 * Latency histogram per operation.
+	 */
+	private static final AtomicLongArray[] LATENCIES = new AtomicLongArray[Operation.values().length];
+	static {
+		for (int op = 0; op < COUNTS.length; ++op) {
+			for (int counter = 0; counter < COUNTERS; ++counter) {
+				COUNTS[op][counter] = new LongAdder();
+			}
+			LATENCIES[op] = new AtomicLongArray(BUCKETS);
+		}
+	}
+
+	/**
+	 * Utility class.
+	 */
+	private SearchStatistics() {
+	}
+
+	/**
+	 * Is recording switched on?
+	 * 
+	 * @return true, if so.
+	 */
+	public static final boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Switch recording on or off.
+	 * 
+	 * @param on
+	 *            New state.
+	 */
+	public static final void setEnabled(final boolean on) {
+		enabled = on;
+	}
+
+	/**
+	 * Start the JFR event of an engine call (only called when recording is on).
+	 * 
+	 * @return Started event.
+	 */
+	static final SearchEvent begin() {
+		final SearchEvent event = new SearchEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Record one engine call.
+	 * 
+	 * @param operation
+	 *            Kind of call.
+	 * @param event
+	 *            Event returned by begin at the start of the call.
+	 * @param nodes
+	 *            Search nodes visited.
+	 * @param backtracks
+	 *            Dead ends.
+	 * @param propagations
+	 *            Values placed by propagation.
+	 * @param attempts
+	 *            Values tried at branch points.
+	 * @param solutions
+	 *            Solutions found.
+	 * @param start
+	 *            System.nanoTime() at the start of the call.
+	 */
+	static final void record(final Operation operation, final SearchEvent event, final long nodes,
+			final long backtracks, final long propagations, final long attempts, final int solutions,
+			final long start) {
+		final long nanos = System.nanoTime() - start;
+		final LongAdder[] counts = COUNTS[operation.ordinal()];
+		counts[CALLS].increment();
+		counts[NODES].add(nodes);
+		counts[BACKTRACKS].add(backtracks);
+		counts[PROPAGATIONS].add(propagations);
+		counts[ATTEMPTS].add(attempts);
+		counts[SOLUTIONS].add(solutions);
+		counts[NANOS].add(nanos);
+		LATENCIES[operation.ordinal()].incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.operation = operation.name();
+			event.nodes = nodes;
+			event.backtracks = backtracks;
+			event.propagations = propagations;
+			event.attempts = attempts;
+			event.solutions = solutions;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Total of a counter.
+	 * 
+	 * @param operation
+	 *            Kind of call.
+	 * @param counter
+	 *            Counter index.
+	 * @return Sum.
+	 */
+	private static final long sum(final Operation operation, final int counter) {
+		return COUNTS[operation.ordinal()][counter].sum();
+	}
+
+	/**
+	 * Number of recorded calls.
+	 * 
+	 * @param operation
+	 *            Kind of call.
+	 * @return Calls.
+	 */
+	public static final long calls(final Operation operation) {
+		return sum(operation, CALLS);
+	}
+
+	/**
+	 * Search nodes visited.
+	 * 
+	 * @param operation
+	 *            Kind of call.
+	 * @return Nodes.
+	 */
+	public static final long nodes(final Operation operation) {
+		return sum(operation, NODES);
+	}
+
+	/**
+	 * Dead ends that forced a backtrack.
+	 * 
+	 * @param operation
+	 *            Kind of call.
+	 * @return Backtracks.
+	 */
+	public static final long backtracks(final Operation operation) {
+		return sum(operation, BACKTRACKS);
+	}
+
+	/**
+	 * Values placed by propagation.
+	 * 
+	 * @param operation
+	 *            Kind of call.
+	 * @return Propagations.
+	 */
+	public static final long propagations(final Operation operation) {
+		return sum(operation, PROPAGATIONS);
+	}
+
+	/**
+	 * Values tried at branch points (fill attempts for FILL).
+	 * 
+	 * @param operation
+	 *            Kind of call.
+	 * @return Attempts.
+	 */
+	public static final long attempts(final Operation operation) {
+		return sum(operation, ATTEMPTS);
+	}
+
+	/**
+	 * Total latency of all recorded calls.
+	 * 
+	 * @param operation
+	 *            Kind of call.
+	 * @return Nanoseconds.
+	 */
+	public static final long totalNanos(final Operation operation) {
+		return sum(operation, NANOS);
+	}
+
+	/**
+	 * Latency percentile (upper bound of the histogram bucket).
+	 * 
+	 * @param operation
+	 *            Kind of call.
+	 * @param percentile
+	 *            Percentile (0 - 100).
+	 * @return Nanoseconds (0 if nothing was recorded).
+	 */
+	public static final long latencyPercentile(final Operation operation, final double percentile) {
+		final AtomicLongArray histogram = LATENCIES[operation.ordinal()];
+		long total = 0;
+		for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+			total += histogram.get(bucket);
+		}
+		final long rank = (long) Math.ceil(total * percentile / 100.0);
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+			seen += histogram.get(bucket);
+			if (seen >= rank && seen > 0) {
+				return bucket >= 62 ? Long.MAX_VALUE : (1L << (bucket + 1)) - 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Export the aggregates (one CSV line per operation).
+	 * 
+	 * @return CSV text with a header line.
+	 */
+	public static final String export() {
+		final StringBuilder result = new StringBuilder(
+				"operation,calls,nodes,backtracks,propagations,attempts,solutions,total_ms,p50_us,p99_us\n");
+		for (final Operation operation : Operation.values()) {
+			result.append(operation.name()).append(',').append(calls(operation)).append(',')
+					.append(nodes(operation)).append(',').append(backtracks(operation)).append(',')
+					.append(propagations(operation)).append(',').append(attempts(operation)).append(',')
+					.append(sum(operation, SOLUTIONS)).append(',').append(totalNanos(operation) / 1000000)
+					.append(',').append(latencyPercentile(operation, 50) / 1000).append(',')
+					.append(latencyPercentile(operation, 99) / 1000).append('\n');
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Reset all aggregates (e.g. before the next batch).
+	 */
+	public static final void reset() {
+		for (int op = 0; op < COUNTS.length; ++op) {
+			for (int counter = 0; counter < COUNTERS; ++counter) {
+				COUNTS[op][counter].reset();
+			}
+			for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+				LATENCIES[op].set(bucket, 0);
+			}
+		}
+	}
+
+	/**
+	 * Kinds of engine calls.
+	 * 
+	 * @author André Dalwigk
+	 * @version 1.0
+	 *
+	 */
+	public enum Operation {
+		SOLVE, COUNT, FILL
+	}
+}
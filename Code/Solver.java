@@ -0,0 +1,42 @@
+/**
+ * Common interface of all Sudoku solver backends.
+ * 
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public interface Solver {
+	/**
+	 * Solve a Sudoku puzzle in place.
+	 * 
+	 * @param toSolve
+	 *            Sudoku to solve (toSolve[row][col], 0 = empty).
+	 * @return Solution of the Sudoku (the same array). If the puzzle has no
+	 *         solution, it is returned unchanged.
+	 */
+	int[][] solve(int[][] toSolve);
+
+	/**
+	 * Solve a Sudoku board.
+	 * 
+	 * @param puzzle
+	 *            Sudoku to solve.
+	 * @return Solved board. If the puzzle has no solution, a board equal to
+	 *         the puzzle is returned.
+	 */
+	default Board solve(final Board puzzle) {
+		return Board.of(solve(puzzle.toGrid()));
+	}
+
+	/**
+	 * Count the solutions of a Sudoku puzzle without modifying it. The search
+	 * stops as soon as limit solutions are found, so countSolutions(grid, 2) == 1
+	 * is a cheap uniqueness check.
+	 * 
+	 * @param grid
+	 *            Sudoku puzzle (grid[row][col], 0 = empty).
+	 * @param limit
+	 *            Maximum number of solutions to look for.
+	 * @return Number of solutions (at most limit).
+	 */
+	int countSolutions(int[][] grid, int limit);
+}
@@ -1,51 +1,180 @@
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 /**
- * Sudoku Generator.
+ * Sudoku Generator. Puzzle number i of a generator is determined by its seed
+ * alone: every puzzle gets its own SplittableRandom derived from (seed, i), the
+ * grid lives on the stack of the call and every thread uses its own engine.
+ * One instance can therefore be shared between threads, and the same seed
+ * always gives the same puzzles.
  * 
- * @author Andr Dalwigk
+ * @author André Dalwigk
  * @version 1.0
  *
  */
 public final class SudokuGenerator {
 
+	/**
+	 * Number of cells of the classic 9x9 board (the difficulty ranges refer to
+	 * it).
+	 */
+	private static final int CLASSIC_CELLS = 81;
+
+	/**
+	 * Search nodes a removal check may visit before the field is kept.
+	 */
+	private static final long UNIQUENESS_BUDGET = 20000;
+
+	/**
+	 * Increment between the seeds of consecutive puzzles (as in
+	 * SplittableRandom).
+	 */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	/**
+	 * Box size n.
+	 */
+	private final int box;
+
 	/**
 	 * Number of columns.
 	 */
-	private static final int COLUMNS = 9;
+	private final int columns;
 
 	/**
 	 * Number of rows.
 	 */
-	private static final int ROWS = COLUMNS;
+	private final int rows;
+
+	/**
+	 * Seed of the puzzle sequence.
+	 */
+	private final long seed;
 
 	/**
-	 * Container for Sudoku puzzles.
+	 * Units of the board.
 	 */
-	int[][] grid;
+	private final Topology topology;
+
+	/**
+	 * Index of the next puzzle of createPuzzle(Difficulty).
+	 */
+	private final AtomicLong next = new AtomicLong();
+
+	/**
+	 * Source of solution grids (base grids derived from the seed).
+	 */
+	private final GridFactory grids;
+
+	/**
+	 * Engine of each thread, used to check that erased puzzles stay unique
+	 * (see ClueRemover).
+	 */
+	private final ThreadLocal<BitmaskEngine> engines;
 
 	/**
 	 * Custom Ctor for a Sudoku generator (Singleton!).
 	 */
 	public SudokuGenerator() {
-		grid = new int[COLUMNS][ROWS];
+		this(3);
 	}
 
 	/**
-	 * Crate a Sudoku puzzle.
+	 * Custom Ctor for a Sudoku generator of nxn boxes (16x16 boards: 4, 25x25
+	 * boards: 5) with a random seed.
+	 * 
+	 * @param boxSize
+	 *            Box size n.
+	 */
+	public SudokuGenerator(final int boxSize) {
+		this(boxSize, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Custom Ctor for a reproducible Sudoku generator of nxn boxes.
+	 * 
+	 * @param boxSize
+	 *            Box size n.
+	 * @param seed
+	 *            Seed of the puzzle sequence.
+	 */
+	public SudokuGenerator(final int boxSize, final long seed) {
+		this(Topology.standard(boxSize), seed);
+	}
+
+	/**
+	 * Custom Ctor for a reproducible generator of a board variant (e.g.
+	 * Topology.diagonal(3) for X-Sudoku puzzles).
+	 * 
+	 * @param topology
+	 *            Units of the board.
+	 * @param seed
+	 *            Seed of the puzzle sequence.
+	 */
+	public SudokuGenerator(final Topology topology, final long seed) {
+		if (topology.boxSize() < 2) {
+			throw new IllegalArgumentException("Unsupported box size: " + topology.boxSize());
+		}
+		box = topology.boxSize();
+		columns = topology.size();
+		rows = columns;
+		this.seed = seed;
+		this.topology = topology;
+		// Base grids come from the stream before puzzle 0.
+		grids = new GridFactory(topology, GridFactory.defaultPoolSize(box), random(-1).nextLong());
+		engines = ThreadLocal.withInitial(() -> new BitmaskEngine(topology));
+	}
+
+	/**
+	 * @return Box size n.
+	 */
+	public final int boxSize() {
+		return box;
+	}
+
+	/**
+	 * @return Units of the board.
+	 */
+	public final Topology topology() {
+		return topology;
+	}
+
+	/**
+	 * @return Seed of the puzzle sequence.
+	 */
+	public final long seed() {
+		return seed;
+	}
+
+	/**
+	 * Crate the next Sudoku puzzle of the sequence.
 	 * 
 	 * @param difficulty
 	 *            How difficult is the puzzle?
 	 * @return Sudoku puzzle.
 	 */
 	public final int[][] createPuzzle(final Difficulty difficulty) {
+		return createPuzzle(difficulty, next.getAndIncrement());
+	}
+
+	/**
+	 * Create puzzle number index of the sequence (the same for every call and
+	 * every thread).
+	 * 
+	 * @param difficulty
+	 *            How difficult is the puzzle?
+	 * @param index
+	 *            Number of the puzzle in the sequence.
+	 * @return Sudoku puzzle.
+	 */
+	public final int[][] createPuzzle(final Difficulty difficulty, final long index) {
+		final SplittableRandom randomGenerator = random(index);
 
 		int toDelete = 0;
 		int tmp = 0;
 
-		final Random randomGenerator = new Random();
 		switch (difficulty) {
 		case EASY:
 			tmp = randomGenerator.nextInt(36);
@@ -72,148 +201,149 @@ public final class SudokuGenerator {
 			}
 			break;
 		default:
-			throw new IllegalArgumentException("Kein gltiger Schwierigkeitsgrad!");
+			throw new IllegalArgumentException("Kein gültiger Schwierigkeitsgrad!");
 		}
+		// Same share of erased fields on larger boards.
+		toDelete = toDelete * columns * rows / CLASSIC_CELLS;
 
-		grid = new int[COLUMNS][ROWS];
-
-		nextField(0, 0);
-
-		erase(toDelete);
-		return grid;
+		return create(randomGenerator, columns * rows - toDelete);
 	}
 
 	/**
-	 * Check validity of a move.
+	 * Create puzzle number index of the sequence with as few clues as possible
+	 * (every clue is needed, or its removal check ran out of budget). Such
+	 * puzzles are the best candidates for hard solving techniques.
 	 * 
-	 * @param xPos
-	 *            x pos of the value.
-	 * @param yPos
-	 *            y pos of the value.
-	 * @param curr
-	 *            Current value to check.
-	 * @return Valid (true) or invalid (false).
-	 */
-	private final boolean isValid(final int xPos, final int yPos, int curr) {
-		for (int yPosTmp = 0; yPosTmp < COLUMNS; yPosTmp++) {
-			if (curr == grid[xPos][yPosTmp])
-				return false;
-		}
-		for (int i = 0; i < 9; i++) {
-			if (curr == grid[i][yPos])
-				return false;
-		}
+	 * @param index
+	 *            Number of the puzzle in the sequence.
+	 * @return Sudoku puzzle.
+	 */
+	public final int[][] createMinimalPuzzle(final long index) {
+		return create(random(index), 0);
+	}
 
-		int borderX = 0;
-		int borderY = 0;
+	/**
+	 * Create puzzle number index of the sequence with as few clues as possible
+	 * as a compact board.
+	 * 
+	 * @param index
+	 *            Number of the puzzle in the sequence.
+	 * @return Sudoku puzzle.
+	 */
+	public final Board createMinimalBoard(final long index) {
+		return Board.of(createMinimalPuzzle(index));
+	}
 
-		if (yPos > ROWS - 7) {
-			if (yPos > ROWS - 4) {
-				borderY = ROWS - 3;
-			} else {
-				borderY = ROWS - 6;
-			}
-		}
+	/**
+	 * Create a solution grid and remove clues in random order while the puzzle
+	 * stays unique (no time budget, so the result only depends on the seed).
+	 * 
+	 * @param randomGenerator
+	 *            Random source of the puzzle.
+	 * @param clues
+	 *            Number of clues to stop at.
+	 * @return Sudoku puzzle.
+	 */
+	private final int[][] create(final SplittableRandom randomGenerator, final int clues) {
+		final int[][] grid = new int[columns][rows];
 
-		if (xPos > COLUMNS - 7) {
-			if (xPos > COLUMNS - 4) {
-				borderX = COLUMNS - 3;
-			} else {
-				borderX = COLUMNS - 6;
-			}
-		}
+		grids.next(grid, randomGenerator);
 
-		for (int i = borderX; i < 10 && i < borderX + 3; i++) {
-			for (int j = borderY; j < 10 && j < borderY + 3; j++) {
-				if (curr == grid[i][j]) {
-					return false;
-				}
-			}
-		}
-		return true;
+		final ClueRemover remover = new ClueRemover(engines.get(), UNIQUENESS_BUDGET);
+		remover.remove(grid, remover.randomOrder(randomGenerator), clues, Long.MAX_VALUE);
+		return grid;
 	}
 
 	/**
-	 * Field to check next.
+	 * Create the next Sudoku puzzle of the sequence as a compact board.
 	 * 
-	 * @param xCurr
-	 *            x pos of the current field.
-	 * @param yCurr
-	 *            y pos of the current field.
-	 * @return true (solvable), false (else).
-	 */
-	public final boolean nextField(final int xCurr, final int yCurr) {
-		int nextX = xCurr;
-		int nextY = yCurr;
-
-		List<Integer> needToBeChecked = new ArrayList<>();
-		for (int counter = 1; counter < 10; counter++) {
-			needToBeChecked.add(counter);
-		}
+	 * @param difficulty
+	 *            How difficult is the puzzle?
+	 * @return Sudoku puzzle.
+	 */
+	public final Board createBoard(final Difficulty difficulty) {
+		return Board.of(createPuzzle(difficulty));
+	}
 
-		final Random randomGenerator = new Random();
+	/**
+	 * Create puzzle number index of the sequence as a compact board.
+	 * 
+	 * @param difficulty
+	 *            How difficult is the puzzle?
+	 * @param index
+	 *            Number of the puzzle in the sequence.
+	 * @return Sudoku puzzle.
+	 */
+	public final Board createBoard(final Difficulty difficulty, final long index) {
+		return Board.of(createPuzzle(difficulty, index));
+	}
 
-		int at = 0;
-		int tmp = 0;
-		int top = needToBeChecked.size();
+	/**
+	 * Lazy source of all puzzles of a difficulty: element i is
+	 * createBoard(difficulty, i), and nothing is generated before it is
+	 * consumed. See boards(Difficulty, long, long).
+	 * 
+	 * @param difficulty
+	 *            Difficulty.
+	 * @return Ordered stream of puzzles.
+	 */
+	public final Stream<Board> boards(final Difficulty difficulty) {
+		return boards(difficulty, 0, Long.MAX_VALUE);
+	}
 
-		for (int i = top - 1; i > 0; i--) {
-			at = randomGenerator.nextInt(i);
-			tmp = needToBeChecked.get(at);
-			needToBeChecked.set(at, needToBeChecked.get(i));
-			needToBeChecked.set(i, tmp);
-		}
+	/**
+	 * Lazy source of the puzzles from..to-1 of a difficulty: element i is
+	 * createBoard(difficulty, from + i). The stream is ordered and sized, so a
+	 * parallel stream splits evenly over the index range, limit and skip
+	 * generate nothing they drop, and filters (e.g. on clues() or
+	 * LogicalSolver.graded) see the puzzles as they arrive.
+	 * 
+	 * @param difficulty
+	 *            Difficulty.
+	 * @param from
+	 *            First puzzle (inclusive).
+	 * @param to
+	 *            Last puzzle (exclusive).
+	 * @return Ordered stream of puzzles.
+	 */
+	public final Stream<Board> boards(final Difficulty difficulty, final long from, final long to) {
+		return LongStream.range(from, to).mapToObj(index -> createBoard(difficulty, index));
+	}
 
-		for (int counter = 0; counter < needToBeChecked.size(); counter++) {
-			if (isValid(xCurr, yCurr, needToBeChecked.get(counter))) {
-				grid[xCurr][yCurr] = needToBeChecked.get(counter);
-				if (xCurr == ROWS - 1) {
-					if (yCurr == COLUMNS - 1) {
-						return true;
-					} else {
-						nextX = 0;
-						nextY = yCurr + 1;
-					}
-				} else {
-					nextX = xCurr + 1;
-				}
-				// Recursion ... I like recursion :-)
-				if (nextField(nextX, nextY)) {
-					return true;
-				}
-			}
-		}
-		grid[xCurr][yCurr] = 0;
-		return false;
+	/**
+	 * Lazy source of the minimal puzzles from..to-1: element i is
+	 * createMinimalBoard(from + i). See boards(Difficulty, long, long).
+	 * 
+	 * @param from
+	 *            First puzzle (inclusive).
+	 * @param to
+	 *            Last puzzle (exclusive).
+	 * @return Ordered stream of puzzles.
+	 */
+	public final Stream<Board> minimalBoards(final long from, final long to) {
+		return LongStream.range(from, to).mapToObj(this::createMinimalBoard);
 	}
 
 	/**
-	 * Erase fields.
+	 * Random source of a puzzle. The seed of puzzle i is the i-th output of a
+	 * SplittableRandom seeded with the generator's seed, so the streams of
+	 * different puzzles do not overlap.
 	 * 
-	 * @param fieldsToErase
-	 *            Number of fields to erase.
-	 */
-	private final void erase(final int fieldsToErase) {
-		double rSquares = COLUMNS * ROWS;
-		double rFieldsToErase = (double) fieldsToErase;
-
-		double eraseProbability = 0;
-
-		for (int row = 0; row < ROWS; row++)
-			for (int col = 0; col < COLUMNS; col++) {
-				eraseProbability = rFieldsToErase / rSquares;
-				if (Math.random() <= eraseProbability) {
-					grid[row][col] = 0;
-					rFieldsToErase--;
-				}
-				rSquares--;
-			}
+	 * @param index
+	 *            Number of the puzzle.
+	 * @return Random source used only by this puzzle.
+	 */
+	private final SplittableRandom random(final long index) {
+		long z = seed + (index + 1) * GOLDEN_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return new SplittableRandom(z ^ (z >>> 31));
 	}
 
 	/**
 	 * Enum encoding the difficulty.
 	 * 
-	 * @author Andr Dalwigk
+	 * @author André Dalwigk
 	 * @version 1.0
 	 *
 	 */
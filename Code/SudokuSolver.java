@@ -1,89 +1,30 @@
 /**
  * SudokuSolver implements an object type capable of solving nxn sudoku puzzles.
  * 
- * @author Andr Dalwigk
+ * @author André Dalwigk
  * @version 1.0
  */
-public final class SudokuSolver {
+public final class SudokuSolver implements Solver {
 	/**
-	 * Dimension.
+	 * Bitmask engine doing the actual search (reused between calls).
 	 */
-	private static final int COLUMNS = 9, ROWS = 9;
+	private final BitmaskEngine engine;
 
 	/**
-	 * Check validity of an entry.
-	 * 
-	 * @param grid
-	 *            Sudoku puzzle.
-	 * @param icol
-	 *            Current column.
-	 * @param jrow
-	 *            Current row.
-	 * @param val
-	 *            Value at position (icol, jrow).
-	 * @return true, if valid (false otherwise).
+	 * Custom Ctor for a 9x9 solver.
 	 */
-	private final boolean isValid(final int[][] grid, final int icol, final int jrow, final int val) {
-		for (int row = 0; row < ROWS; ++row) {
-			if (val == grid[row][jrow]) {
-				return false;
-			}
-		}
-
-		for (int col = 0; col < COLUMNS; ++col) {
-			if (val == grid[icol][col]) {
-				return false;
-			}
-		}
-
-		int colOff = (jrow / 3) * 3;
-		int rowOff = (icol / 3) * 3;
-
-		for (int row = 0; row < ROWS / 3; ++row) {
-			for (int col = 0; col < COLUMNS / 3; ++col) {
-				if (val == grid[row + rowOff][col + colOff]) {
-					return false;
-				}
-			}
-		}
-		return true;
+	public SudokuSolver() {
+		this(3);
 	}
 
 	/**
-	 * Recursive function to solve a Sudoku puzzle.
+	 * Custom Ctor for a solver of nxn boxes (16x16 boards: 4, 25x25 boards: 5).
 	 * 
-	 * @param subGrid
-	 *            SubGrid to solve.
-	 * @param row
-	 *            Current row.
-	 * @param col
-	 *            Current column.
-	 * @return Solved subGrid (divide and conquer!).
+	 * @param boxSize
+	 *            Box size n.
 	 */
-	private final boolean solve(final int[][] subGrid, int row, int col) {
-		if (row == ROWS) {
-			row = 0;
-			if (++col == COLUMNS) {
-				return true;
-			}
-		}
-
-		if (subGrid[row][col] != 0) {
-			return solve(subGrid, row + 1, col);
-		}
-
-		for (int val = 1; val <= COLUMNS; ++val) {
-			if (isValid(subGrid, row, col, val)) {
-				subGrid[row][col] = val;
-
-				if (solve(subGrid, row + 1, col)) {
-					return true;
-				}
-			}
-		}
-		// Reset for backtracking.
-		subGrid[row][col] = 0;
-		return false;
+	public SudokuSolver(final int boxSize) {
+		engine = new BitmaskEngine(boxSize);
 	}
 
 	/**
@@ -93,8 +34,32 @@ public final class SudokuSolver {
 	 *            Sudoku to solve.
 	 * @return Solution of the Sudoku.
 	 */
+	@Override
 	public final int[][] solve(final int[][] toSolve) {
-		solve(toSolve, 0, 0);
+		engine.solve(toSolve);
 		return toSolve;
 	}
+
+	/**
+	 * Solve a board straight from its cells (no grid is built).
+	 * 
+	 * @param puzzle
+	 *            Sudoku to solve.
+	 * @return Solved board (equal to the puzzle, if it has no solution).
+	 */
+	@Override
+	public final Board solve(final Board puzzle) {
+		if (puzzle.boxSize() != engine.boxSize()) {
+			throw new IllegalArgumentException("Solver for box size " + engine.boxSize() + ", board has "
+					+ puzzle.boxSize());
+		}
+		final byte[] solution = new byte[puzzle.cellCount()];
+		engine.solve(puzzle.cells(), 0, solution, 0);
+		return new Board(puzzle.boxSize(), solution);
+	}
+
+	@Override
+	public final int countSolutions(final int[][] grid, final int limit) {
+		return engine.countSolutions(grid, limit);
+	}
 }
\ No newline at end of file
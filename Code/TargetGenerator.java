@@ -0,0 +1,276 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Generates puzzles of a target difficulty: candidates are generated and
+ * graded with the LogicalSolver until the hardest technique they need lies in
+ * [minimum, maximum]. Every puzzle gets an attempt budget and a deadline, and
+ * the whole job an attempt budget and a deadline, so a job returns in
+ * predictable time (possibly with fewer puzzles). The deadlines are checked
+ * between candidates, so a puzzle or job may overrun its deadline by the time
+ * of one candidate (generating and grading one puzzle). Attempt k of puzzle i
+ * is candidate i + k * 2^32 of the generator's sequence, so without deadlines
+ * the result only depends on the seed (and, with a job attempt budget, on
+ * the order in which parallel puzzles draw from it). The report carries the
+ * acceptance rate for sizing jobs.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class TargetGenerator {
+	/**
+	 * Source of the candidates.
+	 */
+	private final SudokuGenerator generator;
+
+	/**
+	 * Easiest and hardest accepted technique.
+	 */
+	private final LogicalSolver.Technique minimum, maximum;
+
+	/**
+	 * Grader of each thread.
+	 */
+	private final ThreadLocal<LogicalSolver> graders;
+
+	/**
+	 * Custom Ctor for a target generator.
+	 *
+	 * @param generator
+	 *            Source of the candidates.
+	 * @param minimum
+	 *            Easiest accepted hardest technique (e.g. X_WING for "at least
+	 *            X-wing").
+	 * @param maximum
+	 *            Hardest accepted technique (GUESSING = no upper limit).
+	 */
+	public TargetGenerator(final SudokuGenerator generator, final LogicalSolver.Technique minimum,
+			final LogicalSolver.Technique maximum) {
+		if (minimum.compareTo(maximum) > 0) {
+			throw new IllegalArgumentException("Empty target: " + minimum + " > " + maximum);
+		}
+		this.generator = generator;
+		this.minimum = minimum;
+		this.maximum = maximum;
+		graders = ThreadLocal.withInitial(() -> new LogicalSolver(generator.boxSize()));
+	}
+
+	/**
+	 * Generate puzzles of the target difficulty.
+	 *
+	 * @param amount
+	 *            Number of puzzles wanted.
+	 * @param attemptsPerPuzzle
+	 *            Candidates per puzzle before it is given up.
+	 * @param jobAttempts
+	 *            Candidates for the whole job (puzzles not done by then are
+	 *            given up; Long.MAX_VALUE = amount * attemptsPerPuzzle).
+	 * @param puzzleNanos
+	 *            Time per puzzle before it is given up (may be overrun by one
+	 *            candidate).
+	 * @param jobNanos
+	 *            Time for the whole job (puzzles not done by then are given
+	 *            up; may be overrun by one candidate).
+	 * @param parallel
+	 *            Generate on all cores (common fork-join pool)?
+	 * @return Puzzles found (in puzzle order) and statistics.
+	 */
+	public final Report generate(final int amount, final int attemptsPerPuzzle, final long jobAttempts,
+			final long puzzleNanos, final long jobNanos, final boolean parallel) {
+		final long start = System.nanoTime();
+		final AtomicLong attempts = new AtomicLong();
+		final LongAdder timeouts = new LongAdder();
+		final LongAdder budgetStops = new LongAdder();
+		final IntStream slots = IntStream.range(0, amount);
+		final Board[] found = (parallel ? slots.parallel() : slots).mapToObj(slot -> {
+			final long puzzleStart = System.nanoTime();
+			for (long attempt = 0; attempt < attemptsPerPuzzle; ++attempt) {
+				final long now = System.nanoTime();
+				if (now - puzzleStart > puzzleNanos || now - start > jobNanos) {
+					timeouts.increment();
+					return null;
+				}
+				// Take one attempt of the job's budget, if any is left.
+				if (attempts.getAndUpdate(n -> n < jobAttempts ? n + 1 : n) >= jobAttempts) {
+					budgetStops.increment();
+					return null;
+				}
+				final Board candidate = candidate((attempt << 32) + slot);
+				final LogicalSolver.Technique grade = graders.get().grade(candidate.toGrid());
+				if (grade.compareTo(minimum) >= 0 && grade.compareTo(maximum) <= 0) {
+					return candidate;
+				}
+			}
+			return null;
+		}).toArray(Board[]::new);
+
+		final List<Board> puzzles = new ArrayList<>(amount);
+		for (final Board puzzle : found) {
+			if (puzzle != null) {
+				puzzles.add(puzzle);
+			}
+		}
+		return new Report(puzzles, amount, attempts.get(), timeouts.sum(), budgetStops.sum(),
+				System.nanoTime() - start);
+	}
+
+	/**
+	 * Candidate number index: puzzles of the generator's HARD range if the
+	 * target includes singles, minimal puzzles otherwise (harder techniques
+	 * are rare with more clues).
+	 *
+	 * @param index
+	 *            Number in the generator's sequence.
+	 * @return Candidate.
+	 */
+	private final Board candidate(final long index) {
+		if (minimum.compareTo(LogicalSolver.Technique.LOCKED_CANDIDATES) < 0) {
+			return generator.createBoard(SudokuGenerator.Difficulty.HARD, index);
+		}
+		return generator.createMinimalBoard(index);
+	}
+
+	/**
+	 * Result of a job.
+	 *
+	 * @author André Dalwigk
+	 * @version 1.0
+	 */
+	public static final class Report {
+		/**
+		 * Accepted puzzles.
+		 */
+		private final List<Board> puzzles;
+
+		/**
+		 * Number of puzzles wanted.
+		 */
+		private final int requested;
+
+		/**
+		 * Candidates graded.
+		 */
+		private final long attempts;
+
+		/**
+		 * Puzzles given up because of a deadline.
+		 */
+		private final long timeouts;
+
+		/**
+		 * Puzzles given up because the job's attempt budget ran out.
+		 */
+		private final long budgetStops;
+
+		/**
+		 * Duration of the job.
+		 */
+		private final long nanos;
+
+		/**
+		 * Custom Ctor for a report.
+		 *
+		 * @param puzzles
+		 *            Accepted puzzles.
+		 * @param requested
+		 *            Number of puzzles wanted.
+		 * @param attempts
+		 *            Candidates graded.
+		 * @param timeouts
+		 *            Puzzles given up because of a deadline.
+		 * @param budgetStops
+		 *            Puzzles given up because the job's attempt budget ran out.
+		 * @param nanos
+		 *            Duration of the job.
+		 */
+		Report(final List<Board> puzzles, final int requested, final long attempts, final long timeouts,
+				final long budgetStops, final long nanos) {
+			this.puzzles = Collections.unmodifiableList(puzzles);
+			this.requested = requested;
+			this.attempts = attempts;
+			this.timeouts = timeouts;
+			this.budgetStops = budgetStops;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return Accepted puzzles (in puzzle order).
+		 */
+		public final List<Board> puzzles() {
+			return puzzles;
+		}
+
+		/**
+		 * @return Number of puzzles wanted.
+		 */
+		public final int requested() {
+			return requested;
+		}
+
+		/**
+		 * @return Candidates graded.
+		 */
+		public final long attempts() {
+			return attempts;
+		}
+
+		/**
+		 * @return Puzzles given up because of a deadline.
+		 */
+		public final long timeouts() {
+			return timeouts;
+		}
+
+		/**
+		 * @return Puzzles given up because the job's attempt budget ran out.
+		 */
+		public final long budgetStops() {
+			return budgetStops;
+		}
+
+		/**
+		 * @return Puzzles given up because their own attempt budget ran out.
+		 */
+		public final long exhausted() {
+			return requested - puzzles.size() - timeouts - budgetStops;
+		}
+
+		/**
+		 * @return Duration of the job in nanoseconds.
+		 */
+		public final long nanos() {
+			return nanos;
+		}
+
+		/**
+		 * Share of the graded candidates that hit the target.
+		 *
+		 * @return Acceptance rate (0 if nothing was graded).
+		 */
+		public final double acceptanceRate() {
+			return attempts == 0 ? 0 : (double) puzzles.size() / attempts;
+		}
+
+		/**
+		 * Expected number of candidates per accepted puzzle.
+		 *
+		 * @return 1 / acceptance rate (infinite if nothing was accepted).
+		 */
+		public final double attemptsPerPuzzle() {
+			return puzzles.isEmpty() ? Double.POSITIVE_INFINITY : (double) attempts / puzzles.size();
+		}
+
+		@Override
+		public final String toString() {
+			return String.format(Locale.ROOT,
+					"%d/%d puzzles, %d attempts, acceptance %.4f, %d timeouts, %d budget stops, %d exhausted, %d ms",
+					puzzles.size(), requested, attempts, acceptanceRate(), timeouts, budgetStops, exhausted(),
+					nanos / 1000000);
+		}
+	}
+}
@@ -0,0 +1,356 @@
+import java.util.Arrays;
+
+/**
+ * Constraint layout of a board: its units (sets of n^2 cells that must hold
+ * every value once) and, derived from them, the units and peers of every
+ * cell, precomputed as flat int tables. Units 0..n^2-1 are the rows (cells in
+ * column order), the next n^2 the columns (cells in row order), the next n^2
+ * the regions (the boxes, or the regions of a jigsaw board) and the rest
+ * extra units such as the diagonals of an X-Sudoku. A topology is immutable
+ * and shared by all engines of a geometry; the standard ones are built once
+ * per box size.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+public final class Topology {
+	/**
+	 * Standard topology of each box size (built on first use).
+	 */
+	private static final Topology[] STANDARD = new Topology[BitmaskEngine.MAX_BOX_SIZE + 1];
+
+	/**
+	 * Box size, side length and number of cells.
+	 */
+	private final int box, size, cellCount;
+
+	/**
+	 * Number of units.
+	 */
+	private final int unitCount;
+
+	/**
+	 * Cells of every unit: units[unit * size + i].
+	 */
+	private final int[] units;
+
+	/**
+	 * Region (box or jigsaw region) of every cell.
+	 */
+	private final int[] regionOf;
+
+	/**
+	 * Largest number of units a cell belongs to.
+	 */
+	private final int degree;
+
+	/**
+	 * Units of every cell: cellUnits[cell * degree + k]. Cells in fewer units
+	 * repeat their row, so adding a value to all of them stays idempotent.
+	 */
+	private final int[] cellUnits;
+
+	/**
+	 * Peers of cell c (cells sharing a unit with it): peers[peerStart[c]] to
+	 * peers[peerStart[c + 1] - 1].
+	 */
+	private final int[] peerStart, peers;
+
+	/**
+	 * Boxes as regions and no extra units?
+	 */
+	private final boolean standard;
+
+	/**
+	 * Custom Ctor for a topology.
+	 *
+	 * @param boxSize
+	 *            Box size n.
+	 * @param regionOf
+	 *            Region of every cell (0..n^2-1, n^2 cells each).
+	 * @param extra
+	 *            Extra units (n^2 distinct cells each).
+	 * @param standard
+	 *            Are the regions the boxes and there are no extra units?
+	 */
+	private Topology(final int boxSize, final int[] regionOf, final int[][] extra, final boolean standard) {
+		if (boxSize < 1 || boxSize > BitmaskEngine.MAX_BOX_SIZE) {
+			throw new IllegalArgumentException("Unsupported box size: " + boxSize);
+		}
+		box = boxSize;
+		size = boxSize * boxSize;
+		cellCount = size * size;
+		if (regionOf.length != cellCount) {
+			throw new IllegalArgumentException("Expected " + cellCount + " region entries: " + regionOf.length);
+		}
+		this.regionOf = regionOf.clone();
+		this.standard = standard;
+		unitCount = 3 * size + extra.length;
+		units = new int[unitCount * size];
+		final int[] filled = new int[size];
+		for (int cell = 0; cell < cellCount; ++cell) {
+			final int row = cell / size;
+			final int col = cell % size;
+			final int region = regionOf[cell];
+			if (region < 0 || region >= size || filled[region] == size) {
+				throw new IllegalArgumentException("Region " + region + " of cell " + cell + " is invalid or full");
+			}
+			units[row * size + col] = cell;
+			units[(size + col) * size + row] = cell;
+			units[(2 * size + region) * size + filled[region]++] = cell;
+		}
+		for (int i = 0; i < extra.length; ++i) {
+			final int[] unit = extra[i];
+			if (unit.length != size || Arrays.stream(unit).distinct().count() != size
+					|| Arrays.stream(unit).anyMatch(cell -> cell < 0 || cell >= cellCount)) {
+				throw new IllegalArgumentException("Unit " + Arrays.toString(unit) + " needs " + size
+						+ " distinct cells");
+			}
+			System.arraycopy(unit, 0, units, (3 * size + i) * size, size);
+		}
+
+		// Units of every cell.
+		final int[] unitsPerCell = new int[cellCount];
+		for (final int cell : units) {
+			++unitsPerCell[cell];
+		}
+		degree = Arrays.stream(unitsPerCell).max().getAsInt();
+		cellUnits = new int[cellCount * degree];
+		Arrays.fill(unitsPerCell, 0);
+		for (int unit = 0; unit < unitCount; ++unit) {
+			for (int i = 0; i < size; ++i) {
+				final int cell = units[unit * size + i];
+				cellUnits[cell * degree + unitsPerCell[cell]++] = unit;
+			}
+		}
+		for (int cell = 0; cell < cellCount; ++cell) {
+			for (int k = unitsPerCell[cell]; k < degree; ++k) {
+				cellUnits[cell * degree + k] = cellUnits[cell * degree];
+			}
+		}
+
+		// Peers of every cell.
+		peerStart = new int[cellCount + 1];
+		final int[] found = new int[cellCount * degree * size];
+		int peerCount = 0;
+		final boolean[] peer = new boolean[cellCount];
+		for (int cell = 0; cell < cellCount; ++cell) {
+			peerStart[cell] = peerCount;
+			for (int k = 0; k < degree; ++k) {
+				final int unit = cellUnits[cell * degree + k];
+				for (int i = 0; i < size; ++i) {
+					final int other = units[unit * size + i];
+					if (other != cell && !peer[other]) {
+						peer[other] = true;
+						found[peerCount++] = other;
+					}
+				}
+			}
+			Arrays.sort(found, peerStart[cell], peerCount);
+			for (int i = peerStart[cell]; i < peerCount; ++i) {
+				peer[found[i]] = false;
+			}
+		}
+		peerStart[cellCount] = peerCount;
+		peers = Arrays.copyOf(found, peerCount);
+	}
+
+	/**
+	 * Classic topology: rows, columns and boxes.
+	 *
+	 * @param boxSize
+	 *            Box size n.
+	 * @return Shared topology.
+	 */
+	public static final synchronized Topology standard(final int boxSize) {
+		if (boxSize < 1 || boxSize > BitmaskEngine.MAX_BOX_SIZE) {
+			throw new IllegalArgumentException("Unsupported box size: " + boxSize);
+		}
+		if (STANDARD[boxSize] == null) {
+			STANDARD[boxSize] = new Topology(boxSize, boxes(boxSize), new int[0][], true);
+		}
+		return STANDARD[boxSize];
+	}
+
+	/**
+	 * X-Sudoku: the classic units plus both diagonals.
+	 *
+	 * @param boxSize
+	 *            Box size n.
+	 * @return Topology.
+	 */
+	public static final Topology diagonal(final int boxSize) {
+		final int size = boxSize * boxSize;
+		final int[][] diagonals = new int[2][size];
+		for (int i = 0; i < size; ++i) {
+			diagonals[0][i] = i * size + i;
+			diagonals[1][i] = i * size + size - 1 - i;
+		}
+		return new Topology(boxSize, boxes(boxSize), diagonals, false);
+	}
+
+	/**
+	 * Jigsaw Sudoku: rows, columns and irregular regions instead of boxes.
+	 *
+	 * @param boxSize
+	 *            Box size n (the board has n^2 x n^2 cells).
+	 * @param regionOf
+	 *            Region of every cell (row by row, 0..n^2-1, n^2 cells each).
+	 * @return Topology.
+	 */
+	public static final Topology jigsaw(final int boxSize, final int[] regionOf) {
+		return new Topology(boxSize, regionOf, new int[0][], false);
+	}
+
+	/**
+	 * This topology with further units (e.g. diagonals or colored cells).
+	 *
+	 * @param extra
+	 *            Units to add (n^2 distinct cells each).
+	 * @return New topology.
+	 */
+	public final Topology withUnits(final int[]... extra) {
+		final int[][] all = new int[unitCount - 3 * size + extra.length][];
+		for (int i = 3 * size; i < unitCount; ++i) {
+			all[i - 3 * size] = unit(i);
+		}
+		System.arraycopy(extra, 0, all, unitCount - 3 * size, extra.length);
+		return new Topology(box, regionOf, all, false);
+	}
+
+	/**
+	 * Box of every cell of a classic board.
+	 *
+	 * @param boxSize
+	 *            Box size n.
+	 * @return Box indices (row by row).
+	 */
+	private static final int[] boxes(final int boxSize) {
+		final int size = boxSize * boxSize;
+		final int[] regionOf = new int[size * size];
+		for (int cell = 0; cell < regionOf.length; ++cell) {
+			regionOf[cell] = (cell / size / boxSize) * boxSize + (cell % size) / boxSize;
+		}
+		return regionOf;
+	}
+
+	/**
+	 * @return Box size n.
+	 */
+	public final int boxSize() {
+		return box;
+	}
+
+	/**
+	 * @return Side length n^2.
+	 */
+	public final int size() {
+		return size;
+	}
+
+	/**
+	 * @return Number of cells n^4.
+	 */
+	public final int cellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * @return Number of units (3 * n^2 plus the extra units).
+	 */
+	public final int unitCount() {
+		return unitCount;
+	}
+
+	/**
+	 * Classic board (boxes, no extra units)? Only then are the band, stack and
+	 * line permutations of a grid valid again.
+	 *
+	 * @return true, if so.
+	 */
+	public final boolean isStandard() {
+		return standard;
+	}
+
+	/**
+	 * Cells of a unit.
+	 *
+	 * @param unit
+	 *            Unit index.
+	 * @return Cells (copy).
+	 */
+	public final int[] unit(final int unit) {
+		return Arrays.copyOfRange(units, unit * size, (unit + 1) * size);
+	}
+
+	/**
+	 * Peers of a cell.
+	 *
+	 * @param cell
+	 *            Cell index (row * size + col).
+	 * @return Cells sharing a unit with it, ascending (copy).
+	 */
+	public final int[] peers(final int cell) {
+		return Arrays.copyOfRange(peers, peerStart[cell], peerStart[cell + 1]);
+	}
+
+	/**
+	 * Region of a cell.
+	 *
+	 * @param cell
+	 *            Cell index.
+	 * @return Region (box or jigsaw region).
+	 */
+	public final int region(final int cell) {
+		return regionOf[cell];
+	}
+
+	/**
+	 * Does a grid break none of the units? Empty cells (0) are ignored.
+	 *
+	 * @param grid
+	 *            Grid (grid[row][col]).
+	 * @return true, if all values are in range and no unit holds one twice.
+	 */
+	public final boolean isValid(final int[][] grid) {
+		for (int unit = 0; unit < unitCount; ++unit) {
+			int used = 0;
+			for (int i = 0; i < size; ++i) {
+				final int cell = units[unit * size + i];
+				final int val = grid[cell / size][cell % size];
+				if (val != 0) {
+					if (val < 0 || val > size || (used & (1 << (val - 1))) != 0) {
+						return false;
+					}
+					used |= 1 << (val - 1);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Cells of all units (see units field; not to be modified).
+	 *
+	 * @return Flat unit table.
+	 */
+	final int[] units() {
+		return units;
+	}
+
+	/**
+	 * Units of all cells (see cellUnits field; not to be modified).
+	 *
+	 * @return Flat table with degree() entries per cell.
+	 */
+	final int[] cellUnits() {
+		return cellUnits;
+	}
+
+	/**
+	 * @return Entries per cell in cellUnits().
+	 */
+	final int degree() {
+		return degree;
+	}
+}
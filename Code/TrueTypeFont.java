@@ -0,0 +1,466 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TrueType font (glyf outlines, e.g. a CJK font) as far as PdfWriter needs
+ * it: character to glyph mapping (cmap format 4 or 12), metrics and
+ * subsetting. A subset keeps the glyph numbers of the font (so they can be
+ * used as CIDs directly) but only the outlines of the used glyphs; all other
+ * glyphs are empty.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+final class TrueTypeFont {
+	/**
+	 * Tables copied into a subset (sorted by tag, as the table directory
+	 * must be). PDF needs none of OS/2, cmap, name and post, but many font
+	 * loaders reject a font without them.
+	 */
+	private static final String[] SUBSET_TABLES = { "OS/2", "cmap", "cvt ", "fpgm", "glyf", "head", "hhea", "hmtx",
+			"loca", "maxp", "name", "post", "prep" };
+
+	/**
+	 * Flags of composite glyph components.
+	 */
+	private static final int ARG_1_AND_2_ARE_WORDS = 0x1, WE_HAVE_A_SCALE = 0x8, MORE_COMPONENTS = 0x20,
+			WE_HAVE_AN_X_AND_Y_SCALE = 0x40, WE_HAVE_A_TWO_BY_TWO = 0x80;
+
+	/**
+	 * Content of the font file.
+	 */
+	private final ByteBuffer data;
+
+	/**
+	 * Offset of every table, by tag.
+	 */
+	private final Map<String, Integer> offsets = new HashMap<>();
+
+	/**
+	 * Length of every table, by tag.
+	 */
+	private final Map<String, Integer> lengths = new HashMap<>();
+
+	/**
+	 * PostScript name of the font.
+	 */
+	private final String name;
+
+	/**
+	 * Font units per em, number of glyphs and of horizontal metrics.
+	 */
+	private final int unitsPerEm, glyphCount, metricCount;
+
+	/**
+	 * Ascender and descender (font units).
+	 */
+	private final int ascent, descent;
+
+	/**
+	 * Bounding box of all glyphs (xMin, yMin, xMax, yMax in font units).
+	 */
+	private final int[] bbox;
+
+	/**
+	 * Offsets of the glyphs in the glyf table (glyphCount + 1 entries).
+	 */
+	private final int[] loca;
+
+	/**
+	 * Offset of the Unicode cmap subtable.
+	 */
+	private final int cmap;
+
+	/**
+	 * Custom Ctor.
+	 *
+	 * @param bytes
+	 *            Font file.
+	 * @param fallbackName
+	 *            Name if the font has no PostScript name.
+	 * @throws IOException
+	 *             If the font is no TrueType font or lacks a table.
+	 */
+	private TrueTypeFont(final byte[] bytes, final String fallbackName) throws IOException {
+		data = ByteBuffer.wrap(bytes);
+		final int version = data.getInt(0);
+		if (version != 0x00010000 && version != 0x74727565) {
+			throw new IOException("Not a TrueType font (OpenType/CFF and collections are not supported)");
+		}
+		final int tables = data.getShort(4) & 0xffff;
+		for (int i = 0; i < tables; ++i) {
+			final int record = 12 + 16 * i;
+			final String tag = new String(bytes, record, 4, StandardCharsets.ISO_8859_1);
+			offsets.put(tag, data.getInt(record + 8));
+			lengths.put(tag, data.getInt(record + 12));
+		}
+		final int head = table("head");
+		unitsPerEm = data.getShort(head + 18) & 0xffff;
+		bbox = new int[] { data.getShort(head + 36), data.getShort(head + 38), data.getShort(head + 40),
+				data.getShort(head + 42) };
+		final boolean longOffsets = data.getShort(head + 50) != 0;
+		glyphCount = data.getShort(table("maxp") + 4) & 0xffff;
+		final int hhea = table("hhea");
+		ascent = data.getShort(hhea + 4);
+		descent = data.getShort(hhea + 6);
+		metricCount = data.getShort(hhea + 34) & 0xffff;
+		table("hmtx");
+		table("glyf");
+		final int locaTable = table("loca");
+		loca = new int[glyphCount + 1];
+		for (int glyph = 0; glyph <= glyphCount; ++glyph) {
+			loca[glyph] = longOffsets ? data.getInt(locaTable + 4 * glyph)
+					: 2 * (data.getShort(locaTable + 2 * glyph) & 0xffff);
+		}
+		cmap = unicodeCmap();
+		final String postScriptName = postScriptName();
+		name = (postScriptName != null ? postScriptName : fallbackName).replaceAll("[^A-Za-z0-9-]", "");
+	}
+
+	/**
+	 * Load a font file.
+	 *
+	 * @param file
+	 *            TrueType font (.ttf).
+	 * @return Font.
+	 * @throws IOException
+	 *             If the file cannot be read or is no TrueType font.
+	 */
+	static final TrueTypeFont load(final Path file) throws IOException {
+		final String fileName = file.getFileName().toString();
+		try {
+			return new TrueTypeFont(Files.readAllBytes(file), fileName.replaceFirst("\\.[^.]*$", ""));
+		} catch (final IndexOutOfBoundsException e) {
+			throw new IOException("Broken font file: " + file, e);
+		}
+	}
+
+	/**
+	 * Offset of a required table.
+	 *
+	 * @param tag
+	 *            Tag of the table.
+	 * @return Offset.
+	 * @throws IOException
+	 *             If the font has no such table.
+	 */
+	private final int table(final String tag) throws IOException {
+		final Integer offset = offsets.get(tag);
+		if (offset == null) {
+			throw new IOException("Font has no " + tag + " table");
+		}
+		return offset;
+	}
+
+	/**
+	 * Find the Unicode subtable of the cmap table (format 12 preferred, then
+	 * format 4).
+	 *
+	 * @return Offset of the subtable.
+	 * @throws IOException
+	 *             If there is none.
+	 */
+	private final int unicodeCmap() throws IOException {
+		final int table = table("cmap");
+		final int count = data.getShort(table + 2) & 0xffff;
+		int best = -1;
+		for (int i = 0; i < count; ++i) {
+			final int platform = data.getShort(table + 4 + 8 * i);
+			final int encoding = data.getShort(table + 6 + 8 * i);
+			final int subtable = table + data.getInt(table + 8 + 8 * i);
+			final int format = data.getShort(subtable);
+			if ((platform == 0 || (platform == 3 && (encoding == 1 || encoding == 10)))
+					&& (format == 12 || (format == 4 && best < 0))) {
+				best = subtable;
+			}
+		}
+		if (best < 0) {
+			throw new IOException("Font has no Unicode cmap");
+		}
+		return best;
+	}
+
+	/**
+	 * PostScript name from the name table.
+	 *
+	 * @return Name, or null if there is none.
+	 */
+	private final String postScriptName() {
+		final Integer table = offsets.get("name");
+		if (table == null) {
+			return null;
+		}
+		final int count = data.getShort(table + 2) & 0xffff;
+		final int strings = table + (data.getShort(table + 4) & 0xffff);
+		for (int i = 0; i < count; ++i) {
+			final int record = table + 6 + 12 * i;
+			if (data.getShort(record + 6) != 6) {
+				continue;
+			}
+			final int platform = data.getShort(record);
+			final byte[] text = new byte[data.getShort(record + 8) & 0xffff];
+			data.get(strings + (data.getShort(record + 10) & 0xffff), text);
+			return new String(text, platform == 1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_16BE);
+		}
+		return null;
+	}
+
+	/**
+	 * @return PostScript name (letters, digits and hyphens only).
+	 */
+	final String name() {
+		return name;
+	}
+
+	/**
+	 * @return Font units per em.
+	 */
+	final int unitsPerEm() {
+		return unitsPerEm;
+	}
+
+	/**
+	 * @return Ascender (font units).
+	 */
+	final int ascent() {
+		return ascent;
+	}
+
+	/**
+	 * @return Descender (font units, negative).
+	 */
+	final int descent() {
+		return descent;
+	}
+
+	/**
+	 * @return Bounding box of all glyphs (xMin, yMin, xMax, yMax in font
+	 *         units).
+	 */
+	final int[] bbox() {
+		return bbox.clone();
+	}
+
+	/**
+	 * Glyph of a character.
+	 *
+	 * @param codePoint
+	 *            Unicode code point.
+	 * @return Glyph number (0 = missing).
+	 */
+	final int glyph(final int codePoint) {
+		if (data.getShort(cmap) == 12) {
+			final int groups = data.getInt(cmap + 12);
+			for (int i = 0; i < groups; ++i) {
+				final int group = cmap + 16 + 12 * i;
+				final int start = data.getInt(group);
+				if (codePoint >= start && codePoint <= data.getInt(group + 4)) {
+					return data.getInt(group + 8) + codePoint - start;
+				}
+			}
+			return 0;
+		}
+		if (codePoint > 0xffff) {
+			return 0;
+		}
+		final int segments = (data.getShort(cmap + 6) & 0xffff) / 2;
+		final int ends = cmap + 14;
+		final int starts = ends + 2 * segments + 2;
+		final int deltas = starts + 2 * segments;
+		final int rangeOffsets = deltas + 2 * segments;
+		for (int segment = 0; segment < segments; ++segment) {
+			if ((data.getShort(ends + 2 * segment) & 0xffff) < codePoint) {
+				continue;
+			}
+			final int start = data.getShort(starts + 2 * segment) & 0xffff;
+			if (start > codePoint) {
+				return 0;
+			}
+			final int delta = data.getShort(deltas + 2 * segment);
+			final int rangeOffset = data.getShort(rangeOffsets + 2 * segment) & 0xffff;
+			if (rangeOffset == 0) {
+				return (codePoint + delta) & 0xffff;
+			}
+			final int glyph = data.getShort(rangeOffsets + 2 * segment + rangeOffset + 2 * (codePoint - start))
+					& 0xffff;
+			return glyph == 0 ? 0 : (glyph + delta) & 0xffff;
+		}
+		return 0;
+	}
+
+	/**
+	 * Advance width of a glyph.
+	 *
+	 * @param glyph
+	 *            Glyph number.
+	 * @return Width (font units).
+	 */
+	final int advance(final int glyph) {
+		return data.getShort(offsets.get("hmtx") + 4 * Math.min(glyph, metricCount - 1)) & 0xffff;
+	}
+
+	/**
+	 * Vertical extent of a glyph's outline.
+	 *
+	 * @param glyph
+	 *            Glyph number.
+	 * @return yMin and yMax (font units, 0 and 0 for empty glyphs).
+	 */
+	final int[] verticalExtent(final int glyph) {
+		if (loca[glyph] == loca[glyph + 1]) {
+			return new int[2];
+		}
+		final int outline = offsets.get("glyf") + loca[glyph];
+		return new int[] { data.getShort(outline + 4), data.getShort(outline + 8) };
+	}
+
+	/**
+	 * Build a subset: the same glyph numbers and metrics, but only the
+	 * outlines of the given glyphs (and of the glyphs they are composed of).
+	 *
+	 * @param used
+	 *            Used glyphs (glyph 0 is always kept).
+	 * @return Font file.
+	 */
+	final byte[] subset(final BitSet used) {
+		final BitSet keep = (BitSet) used.clone();
+		keep.set(0);
+		final int glyf = offsets.get("glyf");
+		for (int glyph = keep.nextSetBit(0); glyph >= 0 && glyph < glyphCount; glyph = keep.nextSetBit(glyph + 1)) {
+			addComponents(glyf, glyph, keep);
+		}
+
+		// New glyf and loca (long offsets).
+		final ByteArrayOutputStream outlines = new ByteArrayOutputStream();
+		final ByteBuffer newLoca = ByteBuffer.allocate(4 * (glyphCount + 1));
+		for (int glyph = 0; glyph < glyphCount; ++glyph) {
+			newLoca.putInt(outlines.size());
+			if (keep.get(glyph)) {
+				outlines.write(data.array(), glyf + loca[glyph], loca[glyph + 1] - loca[glyph]);
+				while (outlines.size() % 4 != 0) {
+					outlines.write(0);
+				}
+			}
+		}
+		newLoca.putInt(outlines.size());
+
+		final Map<String, byte[]> tables = new HashMap<>();
+		for (final String tag : SUBSET_TABLES) {
+			if (offsets.containsKey(tag)) {
+				final byte[] table = new byte[lengths.get(tag)];
+				data.get(offsets.get(tag), table);
+				tables.put(tag, table);
+			}
+		}
+		tables.put("glyf", outlines.toByteArray());
+		tables.put("loca", newLoca.array());
+		final ByteBuffer head = ByteBuffer.wrap(tables.get("head"));
+		head.putInt(8, 0);
+		head.putShort(50, (short) 1);
+		return writeFont(tables);
+	}
+
+	/**
+	 * Mark the components of a composite glyph (recursively).
+	 *
+	 * @param glyf
+	 *            Offset of the glyf table.
+	 * @param glyph
+	 *            Glyph number.
+	 * @param keep
+	 *            Glyphs to keep.
+	 */
+	private final void addComponents(final int glyf, final int glyph, final BitSet keep) {
+		if (loca[glyph] == loca[glyph + 1] || data.getShort(glyf + loca[glyph]) >= 0) {
+			return;
+		}
+		int position = glyf + loca[glyph] + 10;
+		int flags;
+		do {
+			flags = data.getShort(position) & 0xffff;
+			final int component = data.getShort(position + 2) & 0xffff;
+			if (component < glyphCount && !keep.get(component)) {
+				keep.set(component);
+				addComponents(glyf, component, keep);
+			}
+			position += 4 + ((flags & ARG_1_AND_2_ARE_WORDS) != 0 ? 4 : 2);
+			if ((flags & WE_HAVE_A_SCALE) != 0) {
+				position += 2;
+			} else if ((flags & WE_HAVE_AN_X_AND_Y_SCALE) != 0) {
+				position += 4;
+			} else if ((flags & WE_HAVE_A_TWO_BY_TWO) != 0) {
+				position += 8;
+			}
+		} while ((flags & MORE_COMPONENTS) != 0);
+	}
+
+	/**
+	 * Assemble a font file (table directory with checksums, 4-byte aligned
+	 * tables, checkSumAdjustment in head).
+	 *
+	 * @param tables
+	 *            Tables by tag.
+	 * @return Font file.
+	 */
+	private static final byte[] writeFont(final Map<String, byte[]> tables) {
+		int count = 0;
+		int size = 0;
+		for (final String tag : SUBSET_TABLES) {
+			if (tables.containsKey(tag)) {
+				count++;
+				size += (tables.get(tag).length + 3) & ~3;
+			}
+		}
+		final ByteBuffer font = ByteBuffer.allocate(12 + 16 * count + size);
+		int power = 1;
+		while (power * 2 <= count) {
+			power *= 2;
+		}
+		font.putInt(0x00010000).putShort((short) count).putShort((short) (16 * power))
+				.putShort((short) Integer.numberOfTrailingZeros(power)).putShort((short) (16 * (count - power)));
+		int offset = 12 + 16 * count;
+		int headOffset = 0;
+		for (final String tag : SUBSET_TABLES) {
+			final byte[] table = tables.get(tag);
+			if (table == null) {
+				continue;
+			}
+			font.put(tag.getBytes(StandardCharsets.ISO_8859_1)).putInt(checksum(table))
+					.putInt(offset).putInt(table.length);
+			font.put(offset, table);
+			if ("head".equals(tag)) {
+				headOffset = offset;
+			}
+			offset += (table.length + 3) & ~3;
+		}
+		final byte[] bytes = font.array();
+		font.putInt(headOffset + 8, 0xB1B0AFBA - checksum(bytes));
+		return bytes;
+	}
+
+	/**
+	 * TrueType checksum (sum of big-endian 32-bit words, zero padded).
+	 *
+	 * @param bytes
+	 *            Data.
+	 * @return Checksum.
+	 */
+	private static final int checksum(final byte[] bytes) {
+		int sum = 0;
+		for (int i = 0; i < bytes.length; i += 4) {
+			int word = 0;
+			for (int k = 0; k < 4; ++k) {
+				word = (word << 8) | (i + k < bytes.length ? bytes[i + k] & 0xff : 0);
+			}
+			sum += word;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,272 @@
+import java.util.Arrays;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD BatchPropagator (jdk.incubator.vector): the boards are processed in
+ * tiles of one board per vector lane. A tile stores cell c of lane l at
+ * c * lanes + l, so every step of the scalar version (unit masks, candidates,
+ * naked and hidden singles) becomes one vector operation for all lanes. A
+ * tile is done when no lane changes any more; the last tile is padded with
+ * empty boards. Vectors never live across an outer loop (C2 boxes them
+ * there), the broken lanes are collected in an array instead.
+ *
+ * @author André Dalwigk
+ * @version 1.0
+ */
+final class VectorPropagator implements BatchPropagator {
+	/**
+	 * Widest int vector of the platform.
+	 */
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	/**
+	 * Side length, number of cells and units.
+	 */
+	private final int size, cellCount, unitCount;
+
+	/**
+	 * Bitmask containing all values.
+	 */
+	private final int all;
+
+	/**
+	 * Cells of every unit (see Topology).
+	 */
+	private final int[] units;
+
+	/**
+	 * Units of every cell (see Topology).
+	 */
+	private final int[] cellUnits;
+
+	/**
+	 * Units per cell in cellUnits.
+	 */
+	private final int degree;
+
+	/**
+	 * Boards per tile.
+	 */
+	private final int lanes;
+
+	/**
+	 * Placed values of the tile (as bits, 0 = empty).
+	 */
+	private final int[] value;
+
+	/**
+	 * Candidates of the tile.
+	 */
+	private final int[] cand;
+
+	/**
+	 * Used values of every unit of the tile.
+	 */
+	private final int[] used;
+
+	/**
+	 * Lanes of the tile with a contradiction (not 0 = broken).
+	 */
+	private final int[] broken;
+
+	/**
+	 * Custom Ctor.
+	 *
+	 * @param topology
+	 *            Units of the boards.
+	 */
+	VectorPropagator(final Topology topology) {
+		size = topology.size();
+		cellCount = topology.cellCount();
+		unitCount = topology.unitCount();
+		all = (1 << size) - 1;
+		units = topology.units();
+		cellUnits = topology.cellUnits();
+		degree = topology.degree();
+		lanes = SPECIES.length();
+		value = new int[cellCount * lanes];
+		cand = new int[cellCount * lanes];
+		used = new int[unitCount * lanes];
+		broken = new int[lanes];
+	}
+
+	@Override
+	public final int lanes() {
+		return lanes;
+	}
+
+	@Override
+	public final void candidates(final byte[] boards, final int offset, final int count, final int[] masks) {
+		for (int first = 0; first < count; first += lanes) {
+			final int width = Math.min(lanes, count - first);
+			load(boards, offset + first * cellCount, width);
+			usedPass();
+			candidatePass(false);
+			for (int lane = 0; lane < width; ++lane) {
+				final int target = (first + lane) * cellCount;
+				for (int cell = 0; cell < cellCount; ++cell) {
+					masks[target + cell] = cand[cell * lanes + lane];
+				}
+			}
+		}
+	}
+
+	@Override
+	public final int propagate(final byte[] boards, final int offset, final int count, final Status[] status) {
+		int solved = 0;
+		for (int first = 0; first < count; first += lanes) {
+			final int width = Math.min(lanes, count - first);
+			final int start = offset + first * cellCount;
+			load(boards, start, width);
+			boolean changed = true;
+			while (changed) {
+				usedPass();
+				changed = candidatePass(true) || hiddenPass();
+			}
+			for (int lane = 0; lane < width; ++lane) {
+				final int target = start + lane * cellCount;
+				boolean open = false;
+				for (int cell = 0; cell < cellCount; ++cell) {
+					final int v = value[cell * lanes + lane];
+					open |= v == 0;
+					boards[target + cell] = (byte) (v == 0 ? 0 : Integer.numberOfTrailingZeros(v) + 1);
+				}
+				final Status state = broken[lane] != 0 ? Status.BROKEN : open ? Status.OPEN : Status.SOLVED;
+				status[first + lane] = state;
+				solved += state == Status.SOLVED ? 1 : 0;
+			}
+		}
+		return solved;
+	}
+
+	/**
+	 * Load a tile (missing lanes are empty boards).
+	 *
+	 * @param boards
+	 *            Buffer.
+	 * @param start
+	 *            Index of the first board's first cell.
+	 * @param width
+	 *            Boards in the tile.
+	 */
+	private final void load(final byte[] boards, final int start, final int width) {
+		Arrays.fill(broken, 0);
+		for (int lane = 0; lane < lanes; ++lane) {
+			for (int cell = 0; cell < cellCount; ++cell) {
+				final int val = lane < width ? boards[start + lane * cellCount + cell] : 0;
+				if (val < 0 || val > size) {
+					broken[lane] = 1;
+					value[cell * lanes + lane] = 0;
+				} else {
+					value[cell * lanes + lane] = val == 0 ? 0 : 1 << (val - 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compute the used values of every unit (a value used twice breaks the
+	 * lane).
+	 */
+	private final void usedPass() {
+		for (int unit = 0; unit < unitCount; ++unit) {
+			IntVector acc = IntVector.zero(SPECIES);
+			IntVector twice = acc;
+			for (int i = unit * size; i < (unit + 1) * size; ++i) {
+				final IntVector v = IntVector.fromArray(SPECIES, value, units[i] * lanes);
+				twice = twice.or(acc.and(v));
+				acc = acc.or(v);
+			}
+			acc.intoArray(used, unit * lanes);
+			markBroken(twice.compare(VectorOperators.NE, 0));
+		}
+	}
+
+	/**
+	 * Compute the candidates of every cell (an empty cell without candidates
+	 * breaks the lane) and optionally place the naked singles.
+	 *
+	 * @param place
+	 *            Place naked singles?
+	 * @return true, if something was placed in any lane.
+	 */
+	private final boolean candidatePass(final boolean place) {
+		boolean changed = false;
+		for (int cell = 0; cell < cellCount; ++cell) {
+			final int first = cell * degree;
+			IntVector u = IntVector.fromArray(SPECIES, used, cellUnits[first] * lanes)
+					.or(IntVector.fromArray(SPECIES, used, cellUnits[first + 1] * lanes))
+					.or(IntVector.fromArray(SPECIES, used, cellUnits[first + 2] * lanes));
+			for (int k = 3; k < degree; ++k) {
+				u = u.or(IntVector.fromArray(SPECIES, used, cellUnits[first + k] * lanes));
+			}
+			final IntVector v = IntVector.fromArray(SPECIES, value, cell * lanes);
+			final VectorMask<Integer> empty = v.compare(VectorOperators.EQ, 0);
+			final IntVector c = u.not().and(all).blend(0, empty.not());
+			final VectorMask<Integer> none = c.compare(VectorOperators.EQ, 0);
+			markBroken(empty.and(none));
+			c.intoArray(cand, cell * lanes);
+			if (place) {
+				final VectorMask<Integer> single = c.and(c.sub(1)).compare(VectorOperators.EQ, 0).andNot(none);
+				if (single.anyTrue()) {
+					v.blend(c, single).intoArray(value, cell * lanes);
+					changed = true;
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Place the hidden singles of every unit (a value without place breaks the
+	 * lane).
+	 *
+	 * @return true, if something was placed in any lane.
+	 */
+	private final boolean hiddenPass() {
+		boolean changed = false;
+		for (int unit = 0; unit < unitCount; ++unit) {
+			IntVector once = IntVector.zero(SPECIES);
+			IntVector twice = once;
+			for (int i = unit * size; i < (unit + 1) * size; ++i) {
+				final IntVector c = IntVector.fromArray(SPECIES, cand, units[i] * lanes);
+				twice = twice.or(once.and(c));
+				once = once.or(c);
+			}
+			final IntVector u = IntVector.fromArray(SPECIES, used, unit * lanes);
+			markBroken(once.or(u).compare(VectorOperators.NE, all));
+			final IntVector single = once.and(twice.not());
+			if (!single.compare(VectorOperators.NE, 0).anyTrue()) {
+				continue;
+			}
+			for (int i = unit * size; i < (unit + 1) * size; ++i) {
+				final int cell = units[i] * lanes;
+				final IntVector hit = IntVector.fromArray(SPECIES, cand, cell).and(single);
+				final IntVector v = IntVector.fromArray(SPECIES, value, cell);
+				final VectorMask<Integer> place = hit.compare(VectorOperators.NE, 0)
+						.and(v.compare(VectorOperators.EQ, 0));
+				if (place.anyTrue()) {
+					v.blend(hit.and(hit.neg()), place).intoArray(value, cell);
+					changed = true;
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Mark lanes as broken.
+	 *
+	 * @param lanesToMark
+	 *            Lanes with a contradiction.
+	 */
+	private final void markBroken(final VectorMask<Integer> lanesToMark) {
+		if (lanesToMark.anyTrue()) {
+			IntVector.fromArray(SPECIES, broken, 0).blend(1, lanesToMark).intoArray(broken, 0);
+		}
+	}
+}